@@ -18,6 +18,18 @@ repositories {
     mavenCentral()
 }
 
+val jmhVersion = "1.29"
+
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations {
+    "jmhImplementation" { extendsFrom(implementation.get()) }
+    "jmhRuntimeOnly" { extendsFrom(runtimeOnly.get()) }
+}
+
 dependencies {
     implementation(kotlin("stdlib"))
     implementation(platform("org.lwjgl:lwjgl-bom:3.2.3"))
@@ -32,9 +44,32 @@ dependencies {
     implementation("org.joml", "joml", "1.10.1")
 
     compileOnly("org.jetbrains:annotations:20.1.0")
+
+    testImplementation("org.junit.jupiter", "junit-jupiter", "5.7.1")
+
+    "jmhImplementation"("org.openjdk.jmh", "jmh-core", jmhVersion)
+    "jmhAnnotationProcessor"("org.openjdk.jmh", "jmh-generator-annprocess", jmhVersion)
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
+
+// Run with e.g. -PjmhArgs="WorldBenchmark -p radius=8", the arguments are passed to JMH as is
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks and writes the results to build/reports/jmh/results.json."
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val results = file("$buildDir/reports/jmh/results.json")
+    args("-rf", "json", "-rff", results)
+    (project.findProperty("jmhArgs") as String?)?.let { args(it.split(' ').filter(String::isNotEmpty)) }
+    doFirst { results.parentFile.mkdirs() }
 }
 
 val compileKotlin: KotlinCompile by tasks
 compileKotlin.kotlinOptions.jvmTarget = "11"
+val compileTestKotlin: KotlinCompile by tasks
+compileTestKotlin.kotlinOptions.jvmTarget = "11"
 
 idea.module.inheritOutputDirs = true
\ No newline at end of file
@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render;
+
+import io.github.overrun.freeworld.world.BenchmarkWorlds;
+import io.github.overrun.freeworld.world.World;
+import io.github.overrun.freeworld.world.chunk.ChunkSection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The mesh generation of a section, as done by the chunk builders.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkMesherBenchmark {
+    @Param({"0.0", "0.1", "0.3"})
+    public float density;
+    @Param({"false", "true"})
+    public boolean greedy;
+
+    private final ChunkMesher mesher = new ChunkMesher();
+    private final List<ChunkSection> sections = new ArrayList<>();
+    private int next;
+
+    @Setup
+    public void setup() {
+        // The sprites of the blocks are looked up for each face
+        BlockSprites.stitch(false);
+        World world = BenchmarkWorlds.create(1, 64, density);
+        for (int x = -1; x <= 1; x++) {
+            for (int z = -1; z <= 1; z++) {
+                for (ChunkSection section : world.getOrLoadChunk(x, z).getSections()) {
+                    if (section != null) sections.add(section);
+                }
+            }
+        }
+        mesher.setGreedy(greedy);
+    }
+
+    @Benchmark
+    public int build() {
+        int i = next;
+        next = (i + 1) % sections.size();
+        return mesher.build(sections.get(i)).getQuadCount();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.world;
+
+import io.github.overrun.freeworld.block.Blocks;
+
+import java.util.Random;
+
+import static io.github.overrun.freeworld.world.chunk.ChunkSection.SIZE;
+
+/**
+ * Create the worlds to benchmark.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+public final class BenchmarkWorlds {
+    /** The seed of the blocks scattered, so the runs get the same world. */
+    public static final long SEED = 0x5eedL;
+
+    /**
+     * Create the flat world around the origin, then scatter the blocks
+     * above the ground.
+     *
+     * @param radius  The chunks loaded around the origin.
+     * @param height  The height of the world.
+     * @param density The chance of each position above the ground to be filled.
+     * @return The world.
+     */
+    public static World create(int radius, int height, float density) {
+        var world = new World(height, radius);
+        world.updateChunks(0, 0);
+        if (density > 0) {
+            var random = new Random(SEED);
+            int min = getMin(world);
+            int max = getMax(world);
+            for (int x = min; x < max; x++) {
+                for (int z = min; z < max; z++) {
+                    for (int y = 3; y < height; y++) {
+                        if (random.nextFloat() < density) {
+                            world.setBlock(x, y, z, random.nextBoolean() ? Blocks.dirt : Blocks.grassBlock);
+                        }
+                    }
+                }
+            }
+        }
+        return world;
+    }
+
+    /**
+     * Get the min x or z of the blocks loaded.
+     */
+    public static int getMin(World world) {
+        return -world.getLoadRadius() * SIZE;
+    }
+
+    /**
+     * Get the max x or z of the blocks loaded, exclusive.
+     */
+    public static int getMax(World world) {
+        return (world.getLoadRadius() + 1) * SIZE;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.world;
+
+import io.github.overrun.freeworld.block.Block;
+import io.github.overrun.freeworld.block.Blocks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.overrun.freeworld.world.chunk.ChunkSection.SIZE;
+
+/**
+ * The block lookups by the meshing, the picking and the commands.
+ * <p>
+ * Each invocation reads {@value #ACCESSES} positions in the order of the {@link #pattern}:
+ * <ul>
+ *     <li>{@code sequential}: the bottom section at the origin, with x changing fastest</li>
+ *     <li>{@code column}: the same section, with y changing fastest</li>
+ *     <li>{@code random}: anywhere in the loaded chunks</li>
+ * </ul>
+ * The baseline is {@link #arrayGetBlock}, which reads the same {@link Block}s from one
+ * {@code Block[]} of the loaded blocks, laid out and bounds checked as the world
+ * was before the chunks. The {@code flat} benchmarks read the block ids and the
+ * visible faces from plain {@code int[]}s, to show the cost of the references.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockAccessBenchmark {
+    private static final int ACCESSES = SIZE * SIZE * SIZE;
+
+    @Param({"2", "8"})
+    public int radius;
+    @Param({"64", "256"})
+    public int height;
+    @Param({"sequential", "column", "random"})
+    public String pattern;
+
+    private World world;
+    private final int[] xs = new int[ACCESSES];
+    private final int[] ys = new int[ACCESSES];
+    private final int[] zs = new int[ACCESSES];
+    /** The loaded blocks, in the layout of the world before the chunks. */
+    private Block[] arrayBlocks;
+    /** The block ids of the loaded blocks. */
+    private int[] flatBlocks;
+    /** The visible faces of the loaded blocks. */
+    private int[] flatFaces;
+    private int flatMin;
+    private int flatWidth;
+
+    @Setup
+    public void setup() {
+        world = BenchmarkWorlds.create(radius, height, 0.1f);
+        var random = new Random(BenchmarkWorlds.SEED);
+        int min = BenchmarkWorlds.getMin(world);
+        int max = BenchmarkWorlds.getMax(world);
+        int i = 0;
+        switch (pattern) {
+            case "sequential":
+                for (int y = 0; y < SIZE; y++) {
+                    for (int z = 0; z < SIZE; z++) {
+                        for (int x = 0; x < SIZE; x++, i++) {
+                            xs[i] = x;
+                            ys[i] = y;
+                            zs[i] = z;
+                        }
+                    }
+                }
+                break;
+            case "column":
+                for (int x = 0; x < SIZE; x++) {
+                    for (int z = 0; z < SIZE; z++) {
+                        for (int y = 0; y < SIZE; y++, i++) {
+                            xs[i] = x;
+                            ys[i] = y;
+                            zs[i] = z;
+                        }
+                    }
+                }
+                break;
+            case "random":
+                for (; i < ACCESSES; i++) {
+                    xs[i] = min + random.nextInt(max - min);
+                    ys[i] = random.nextInt(height);
+                    zs[i] = min + random.nextInt(max - min);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown pattern: " + pattern);
+        }
+        flatMin = min;
+        flatWidth = max - min;
+        arrayBlocks = new Block[flatWidth * flatWidth * height];
+        flatBlocks = new int[arrayBlocks.length];
+        flatFaces = new int[arrayBlocks.length];
+        for (int y = 0; y < height; y++) {
+            for (int z = min; z < max; z++) {
+                for (int x = min; x < max; x++) {
+                    var block = world.getBlock(x, y, z);
+                    arrayBlocks[arrayIndex(x - min, y, z - min)] = block;
+                    int index = flatIndex(x, y, z);
+                    flatBlocks[index] = block.getId();
+                    flatFaces[index] = world.getVisibleFaces(x, y, z);
+                }
+            }
+        }
+    }
+
+    private int arrayIndex(int x, int y, int z) {
+        return x + (y * flatWidth * flatWidth) + (z * flatWidth);
+    }
+
+    private Block arrayGetBlock(int x, int y, int z) {
+        x -= flatMin;
+        z -= flatMin;
+        if (x >= 0 && x < flatWidth && y >= 0 && y < height && z >= 0 && z < flatWidth) {
+            return arrayBlocks[arrayIndex(x, y, z)];
+        }
+        return Blocks.air;
+    }
+
+    private int flatIndex(int x, int y, int z) {
+        return (y * flatWidth + z - flatMin) * flatWidth + x - flatMin;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void getBlock(Blackhole blackhole) {
+        for (int i = 0; i < ACCESSES; i++) {
+            blackhole.consume(world.getBlock(xs[i], ys[i], zs[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void getVisibleFaces(Blackhole blackhole) {
+        for (int i = 0; i < ACCESSES; i++) {
+            blackhole.consume(world.getVisibleFaces(xs[i], ys[i], zs[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void arrayGetBlock(Blackhole blackhole) {
+        for (int i = 0; i < ACCESSES; i++) {
+            blackhole.consume(arrayGetBlock(xs[i], ys[i], zs[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void flatGetBlock(Blackhole blackhole) {
+        for (int i = 0; i < ACCESSES; i++) {
+            blackhole.consume(flatBlocks[flatIndex(xs[i], ys[i], zs[i])]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void flatGetVisibleFaces(Blackhole blackhole) {
+        for (int i = 0; i < ACCESSES; i++) {
+            blackhole.consume(flatFaces[flatIndex(xs[i], ys[i], zs[i])]);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.world;
+
+import io.github.overrun.freeworld.client.GameRenderer;
+import io.github.overrun.freeworld.util.HitResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The picking, casting the rays from the random eyes in the random directions.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RaycastBenchmark {
+    private static final int RAYS = 1024;
+
+    @Param({"0.0", "0.1", "0.3"})
+    public float density;
+
+    private World world;
+    private final float[] rays = new float[RAYS * 6];
+    private final HitResult result = new HitResult();
+    private int next;
+
+    @Setup
+    public void setup() {
+        world = BenchmarkWorlds.create(2, 64, density);
+        var random = new Random(BenchmarkWorlds.SEED);
+        for (int i = 0; i < rays.length; i += 6) {
+            rays[i] = random.nextFloat() * 16;
+            rays[i + 1] = 3 + random.nextFloat() * 16;
+            rays[i + 2] = random.nextFloat() * 16;
+            // Uniform on the sphere
+            float dirY = random.nextFloat() * 2 - 1;
+            double yaw = random.nextDouble() * Math.PI * 2;
+            float r = (float) Math.sqrt(1 - dirY * dirY);
+            rays[i + 3] = (float) Math.cos(yaw) * r;
+            rays[i + 4] = dirY;
+            rays[i + 5] = (float) Math.sin(yaw) * r;
+        }
+    }
+
+    @Benchmark
+    public boolean cast() {
+        int i = next;
+        next = (i + 6) % rays.length;
+        return Raycast.cast(
+                world,
+                rays[i],
+                rays[i + 1],
+                rays[i + 2],
+                rays[i + 3],
+                rays[i + 4],
+                rays[i + 5],
+                GameRenderer.REACH,
+                result
+        );
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.world;
+
+import io.github.overrun.freeworld.block.Blocks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The updates of the world, which recompute the visible faces.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldBenchmark {
+    private static final int POSITIONS = 1024;
+
+    @Param({"2", "8"})
+    public int radius;
+    @Param({"64", "256"})
+    public int height;
+
+    private World world;
+    private final int[] xs = new int[POSITIONS];
+    private final int[] ys = new int[POSITIONS];
+    private final int[] zs = new int[POSITIONS];
+    private int next;
+
+    @Setup
+    public void setup() {
+        world = BenchmarkWorlds.create(radius, height, 0);
+        var random = new Random(BenchmarkWorlds.SEED);
+        int min = BenchmarkWorlds.getMin(world);
+        int max = BenchmarkWorlds.getMax(world);
+        for (int i = 0; i < POSITIONS; i++) {
+            xs[i] = min + random.nextInt(max - min);
+            // Above the ground, so the world is the same after each invocation
+            ys[i] = 3 + random.nextInt(height - 3);
+            zs[i] = min + random.nextInt(max - min);
+        }
+    }
+
+    /**
+     * Generate the chunks and their visible faces, like when the player
+     * joins the world.
+     */
+    @Benchmark
+    public World loadChunks() {
+        var world = new World(height, radius);
+        world.updateChunks(0, 0);
+        return world;
+    }
+
+    /**
+     * Place a block and destroy it, like the player does.
+     */
+    @Benchmark
+    public void placeAndDestroy() {
+        int i = next;
+        next = (i + 1) % POSITIONS;
+        world.setBlock(xs[i], ys[i], zs[i], Blocks.dirt);
+        world.setBlock(xs[i], ys[i], zs[i], Blocks.air, true);
+    }
+}
@@ -24,22 +24,11 @@
 
 package io.github.overrun.freeworld.block;
 
-import io.github.overrun.freeworld.client.GlProgram;
-import io.github.overrun.freeworld.client.Mesh;
-import io.github.overrun.freeworld.client.Texture;
-
-import java.util.Objects;
-
-import static io.github.overrun.freeworld.util.Utils.makeColor1f;
-
 /**
  * @author squid233
  * @since 2021/03/25
  */
 public final class Blocks {
-    private static final int[] SINGLE_FACE_INDICES = {
-            0, 1, 3, 3, 1, 2
-    };
     public static final float[] VERTICES_FRONT = {
             // V0
             0, 1, 1,
@@ -162,65 +151,113 @@ public final class Blocks {
     public static final int FACE_OVERLAY_RIGHT = 128;
     public static final int FACE_OVERLAY_LEFT = 256;
     public static final int FACE_OVERLAY_BACK = 512;
+    /** All faces, in the order to render. */
+    public static final int[] FACES = {
+            FACE_FRONT,
+            FACE_RIGHT,
+            FACE_TOP,
+            FACE_LEFT,
+            FACE_BACK,
+            FACE_BOTTOM,
+            FACE_OVERLAY_FRONT,
+            FACE_OVERLAY_RIGHT,
+            FACE_OVERLAY_LEFT,
+            FACE_OVERLAY_BACK
+    };
+    /** The faces with a normal, which can be hidden by the neighbors. */
+    public static final int[] SIDES = {
+            FACE_FRONT,
+            FACE_RIGHT,
+            FACE_TOP,
+            FACE_LEFT,
+            FACE_BACK,
+            FACE_BOTTOM
+    };
+    /** The faces with a normal, as a mask. */
+    public static final int SIDE_MASK = 63;
+
+    public static final Block air = BlockRegistry.register(new AirBlock("air"));
+    public static final Block grassBlock = BlockRegistry.register(new GrassBlock("grass_block"));
+    public static final Block dirt = create("dirt");
 
-    private static GlProgram program;
+    /**
+     * Get the face facing the other way.
+     *
+     * @param face One of {@link #SIDES}.
+     * @return The opposite face.
+     */
+    public static int getOpposite(int face) {
+        switch (face) {
+            case FACE_FRONT:
+                return FACE_BACK;
+            case FACE_RIGHT:
+                return FACE_LEFT;
+            case FACE_TOP:
+                return FACE_BOTTOM;
+            case FACE_LEFT:
+                return FACE_RIGHT;
+            case FACE_BACK:
+                return FACE_FRONT;
+            case FACE_BOTTOM:
+                return FACE_TOP;
+            default:
+                throw new IllegalArgumentException("Unknown side: " + face);
+        }
+    }
+
+    public static int getOffsetX(int face) {
+        return face == FACE_RIGHT ? 1 : (face == FACE_LEFT ? -1 : 0);
+    }
 
-    public static Block air;
-    public static Block grassBlock;
-    public static Block dirt;
+    public static int getOffsetY(int face) {
+        return face == FACE_TOP ? 1 : (face == FACE_BOTTOM ? -1 : 0);
+    }
+
+    public static int getOffsetZ(int face) {
+        return face == FACE_FRONT ? 1 : (face == FACE_BACK ? -1 : 0);
+    }
 
-    public static Mesh singleFaceMesh(int face,
-                                      String blockName,
-                                      Texture texture,
-                                      float... vertices) {
-        return Mesh.of(
-                "blockFace_" + blockName + face,
-                program,
-                vertices,
-                makeColor1f(SINGLE_FACE_INDICES.length),
-                ((face == FACE_TOP)
-                        ? (TEX_COORD_TOP)
-                        : ((face == FACE_BOTTOM)
-                        ? (TEX_COORD_BOTTOM)
-                        : ((face == FACE_FRONT
-                        || face == FACE_RIGHT
-                        || face == FACE_LEFT
-                        || face == FACE_BACK)
-                        ? (TEX_COORD_SIDE)
-                        : (TEX_COORD_OVERLAY_SIDE)))),
-                SINGLE_FACE_INDICES,
-                texture
-        );
+    public static float[] getTexCoords(int face) {
+        return ((face == FACE_TOP)
+                ? (TEX_COORD_TOP)
+                : ((face == FACE_BOTTOM)
+                ? (TEX_COORD_BOTTOM)
+                : ((face == FACE_FRONT
+                || face == FACE_RIGHT
+                || face == FACE_LEFT
+                || face == FACE_BACK)
+                ? (TEX_COORD_SIDE)
+                : (TEX_COORD_OVERLAY_SIDE))));
     }
 
-    public static void init(GlProgram glProgram) {
-        if (program == null) {
-            program = glProgram;
-            air = new AirBlock(null);
-            grassBlock = create("grass_block");
-            var union = Objects.requireNonNull(grassBlock.getUnion()).getMap();
-            for (int i = 0; i < SINGLE_FACE_INDICES.length; i++) {
-                union.get(FACE_TOP).getColors()[i * 4] = 0.568f;
-                union.get(FACE_TOP).getColors()[i * 4 + 1] = 0.741f;
-                union.get(FACE_TOP).getColors()[i * 4 + 2] = 0.349f;
-                union.get(FACE_OVERLAY_FRONT).getColors()[i * 4] = 0.568f;
-                union.get(FACE_OVERLAY_FRONT).getColors()[i * 4 + 1] = 0.741f;
-                union.get(FACE_OVERLAY_FRONT).getColors()[i * 4 + 2] = 0.349f;
-                union.get(FACE_OVERLAY_RIGHT).getColors()[i * 4] = 0.568f;
-                union.get(FACE_OVERLAY_RIGHT).getColors()[i * 4 + 1] = 0.741f;
-                union.get(FACE_OVERLAY_RIGHT).getColors()[i * 4 + 2] = 0.349f;
-                union.get(FACE_OVERLAY_LEFT).getColors()[i * 4] = 0.568f;
-                union.get(FACE_OVERLAY_LEFT).getColors()[i * 4 + 1] = 0.741f;
-                union.get(FACE_OVERLAY_LEFT).getColors()[i * 4 + 2] = 0.349f;
-                union.get(FACE_OVERLAY_BACK).getColors()[i * 4] = 0.568f;
-                union.get(FACE_OVERLAY_BACK).getColors()[i * 4 + 1] = 0.741f;
-                union.get(FACE_OVERLAY_BACK).getColors()[i * 4 + 2] = 0.349f;
-            }
-            dirt = create("dirt");
+    public static float[] getVertices(int face) {
+        switch (face) {
+            case FACE_FRONT:
+                return VERTICES_FRONT;
+            case FACE_RIGHT:
+                return VERTICES_RIGHT;
+            case FACE_TOP:
+                return VERTICES_TOP;
+            case FACE_LEFT:
+                return VERTICES_LEFT;
+            case FACE_BACK:
+                return VERTICES_BACK;
+            case FACE_BOTTOM:
+                return VERTICES_BOTTOM;
+            case FACE_OVERLAY_FRONT:
+                return VERTICES_OVERLAY_FRONT;
+            case FACE_OVERLAY_RIGHT:
+                return VERTICES_OVERLAY_RIGHT;
+            case FACE_OVERLAY_LEFT:
+                return VERTICES_OVERLAY_LEFT;
+            case FACE_OVERLAY_BACK:
+                return VERTICES_OVERLAY_BACK;
+            default:
+                throw new IllegalArgumentException("Unknown face: " + face);
         }
     }
 
     private static Block create(String name) {
-        return new Block(new BlockMeshUnion(name));
+        return BlockRegistry.register(new Block(name));
     }
 }
@@ -24,34 +24,263 @@
 
 package io.github.overrun.freeworld.client;
 
-import static org.lwjgl.opengl.GL11.*;
+import io.github.overrun.freeworld.client.gl.GlBackend;
+import io.github.overrun.freeworld.client.gl.LwjglBackend;
+import io.github.overrun.freeworld.client.render.RenderStats;
+
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL40.GL_DRAW_INDIRECT_BUFFER;
 
 /**
+ * Keeps a shadow of the GL state, so that a call which doesn't change the
+ * state never reaches the driver. All the changes of the cached state must
+ * go through here, or the shadow goes wrong.
+ * <p>
+ * The cached state is the bound program, the texture of each unit, the
+ * vertex array, the array, element and draw indirect buffers, and the
+ * blend, cull and depth settings.
+ * The issued and skipped calls are counted by {@link RenderStats}.
+ * <p>
+ * The GL calls go to the {@linkplain #getBackend() backend}, which the
+ * programs, textures and meshes call as well.
+ *
  * @author squid233
  * @since 2021/03/25
  */
 public final class GlStateManager {
+    private static final int TEXTURE_UNITS = 8;
+    private static final int[] TEXTURES = new int[TEXTURE_UNITS];
+    private static GlBackend backend = LwjglBackend.INSTANCE;
+    private static boolean coreProfile;
+    private static int program;
+    private static int activeTexture;
+    private static int vertexArray;
+    private static int arrayBuffer;
+    /** The element buffer is kept by the vertex array, -1 if unknown. */
+    private static int elementBuffer;
+    private static int drawIndirectBuffer;
+    private static boolean blend;
+    private static int blendSrc = GL_ONE;
+    private static int blendDst = GL_ZERO;
+    private static boolean cullFace;
+    private static int cullFaceMode = GL_BACK;
+    private static boolean depthTest;
+    private static int depthFunc = GL_LESS;
+
+    private static boolean change(boolean changed) {
+        RenderStats.countStateCall(!changed);
+        return changed;
+    }
+
+    private static void setCapability(int cap, boolean enable) {
+        if (enable) backend.glEnable(cap);
+        else backend.glDisable(cap);
+    }
+
+    /**
+     * Set up the state manager for a new context.
+     *
+     * @param core Whether the context is a core profile, which draws
+     *             with vertex arrays.
+     */
+    public static void init(boolean core) {
+        coreProfile = core;
+    }
+
+    public static GlBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Send the GL calls to another backend, and forget the cached state,
+     * which is of the old one. The state of the new one must be the default.
+     */
+    public static void setBackend(GlBackend backend) {
+        GlStateManager.backend = backend;
+        Arrays.fill(TEXTURES, 0);
+        program = 0;
+        activeTexture = 0;
+        vertexArray = 0;
+        arrayBuffer = 0;
+        elementBuffer = 0;
+        drawIndirectBuffer = 0;
+        blend = false;
+        blendSrc = GL_ONE;
+        blendDst = GL_ZERO;
+        cullFace = false;
+        cullFaceMode = GL_BACK;
+        depthTest = false;
+        depthFunc = GL_LESS;
+    }
+
+    public static boolean isCoreProfile() {
+        return coreProfile;
+    }
+
+    public static void useProgram(int id) {
+        if (change(program != id)) {
+            program = id;
+            backend.glUseProgram(id);
+        }
+    }
+
+    /**
+     * Select the texture unit, which {@link #bindTexture(int)} binds to.
+     *
+     * @param unit The index of the unit, not {@code GL_TEXTURE0 + unit}.
+     */
+    public static void activeTexture(int unit) {
+        if (change(activeTexture != unit)) {
+            activeTexture = unit;
+            backend.glActiveTexture(GL_TEXTURE0 + unit);
+        }
+    }
+
+    /**
+     * Bind the 2D texture to the active unit.
+     */
+    public static void bindTexture(int id) {
+        if (change(TEXTURES[activeTexture] != id)) {
+            TEXTURES[activeTexture] = id;
+            backend.glBindTexture(GL_TEXTURE_2D, id);
+        }
+    }
+
+    public static void bindTexture(int unit, int id) {
+        if (TEXTURES[unit] == id) {
+            RenderStats.countStateCall(true);
+            return;
+        }
+        activeTexture(unit);
+        bindTexture(id);
+    }
+
+    public static void deleteTexture(int id) {
+        for (int i = 0; i < TEXTURE_UNITS; i++) {
+            // GL binds 0 in place of the deleted texture
+            if (TEXTURES[i] == id) TEXTURES[i] = 0;
+        }
+        backend.glDeleteTextures(id);
+    }
+
+    /**
+     * Bind the vertex array, only in the {@linkplain #isCoreProfile() core profile}.
+     */
+    public static void bindVertexArray(int id) {
+        if (change(vertexArray != id)) {
+            vertexArray = id;
+            elementBuffer = -1;
+            backend.glBindVertexArray(id);
+        }
+    }
+
+    public static void deleteVertexArray(int id) {
+        if (vertexArray == id) {
+            vertexArray = 0;
+            elementBuffer = -1;
+        }
+        backend.glDeleteVertexArrays(id);
+    }
+
+    /**
+     * Bind the buffer to {@code GL_ARRAY_BUFFER}, {@code GL_ELEMENT_ARRAY_BUFFER}
+     * or {@code GL_DRAW_INDIRECT_BUFFER}.
+     */
+    public static void bindBuffer(int target, int id) {
+        if (target == GL_ARRAY_BUFFER) {
+            if (change(arrayBuffer != id)) {
+                arrayBuffer = id;
+                backend.glBindBuffer(target, id);
+            }
+        } else if (target == GL_ELEMENT_ARRAY_BUFFER) {
+            if (change(elementBuffer != id)) {
+                elementBuffer = id;
+                backend.glBindBuffer(target, id);
+            }
+        } else if (target == GL_DRAW_INDIRECT_BUFFER) {
+            if (change(drawIndirectBuffer != id)) {
+                drawIndirectBuffer = id;
+                backend.glBindBuffer(target, id);
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown buffer target: " + target);
+        }
+    }
+
+    public static void deleteBuffer(int id) {
+        if (arrayBuffer == id) arrayBuffer = 0;
+        if (elementBuffer == id) elementBuffer = 0;
+        if (drawIndirectBuffer == id) drawIndirectBuffer = 0;
+        backend.glDeleteBuffers(id);
+    }
+
     public static void enableBlend() {
-        glEnable(GL_BLEND);
+        if (change(!blend)) {
+            blend = true;
+            setCapability(GL_BLEND, true);
+        }
     }
 
     public static void blendFuncAlpha() {
-        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+    }
+
+    public static void blendFunc(int src, int dst) {
+        if (change(blendSrc != src || blendDst != dst)) {
+            blendSrc = src;
+            blendDst = dst;
+            backend.glBlendFunc(src, dst);
+        }
     }
 
     public static void disableBlend() {
-        glDisable(GL_BLEND);
+        if (change(blend)) {
+            blend = false;
+            setCapability(GL_BLEND, false);
+        }
     }
 
     public static void enableCullFace() {
-        glEnable(GL_CULL_FACE);
+        if (change(!cullFace)) {
+            cullFace = true;
+            setCapability(GL_CULL_FACE, true);
+        }
     }
 
     public static void cullFaceBack() {
-        glCullFace(GL_BACK);
+        if (change(cullFaceMode != GL_BACK)) {
+            cullFaceMode = GL_BACK;
+            backend.glCullFace(GL_BACK);
+        }
     }
 
     public static void disableCullFace() {
-        glDisable(GL_CULL_FACE);
+        if (change(cullFace)) {
+            cullFace = false;
+            setCapability(GL_CULL_FACE, false);
+        }
+    }
+
+    public static void enableDepthTest() {
+        if (change(!depthTest)) {
+            depthTest = true;
+            setCapability(GL_DEPTH_TEST, true);
+        }
+    }
+
+    public static void depthFunc(int func) {
+        if (change(depthFunc != func)) {
+            depthFunc = func;
+            backend.glDepthFunc(func);
+        }
+    }
+
+    public static void disableDepthTest() {
+        if (change(depthTest)) {
+            depthTest = false;
+            setCapability(GL_DEPTH_TEST, false);
+        }
     }
 }
@@ -31,8 +31,6 @@ import io.github.overrun.freeworld.entity.player.Player;
 import org.joml.Matrix4f;
 
 import static org.joml.Math.toRadians;
-import static org.lwjgl.opengl.GL11.GL_VIEWPORT;
-import static org.lwjgl.opengl.GL11.glGetIntegerv;
 
 /**
  * @author squid233
@@ -50,7 +48,6 @@ public final class Transformation {
     private static final Matrix4f ORTHO_CPY = new Matrix4f();
     private static final Matrix4f VIEW = new Matrix4f();
     private static final Matrix4f VIEW_CPY = new Matrix4f();
-    private static final int[] VIEWPORT_BUF = new int[16];
 
     public static Matrix4f getProjectionMatrix(Window window) {
         return PROJECTION.setPerspective(
@@ -61,23 +58,6 @@ public final class Transformation {
         );
     }
 
-    public static Matrix4f getPickMatrix(Window window) {
-        glGetIntegerv(GL_VIEWPORT, VIEWPORT_BUF);
-        return PROJECTION.identity()
-                .pick(
-                        window.getWidth() / 2f,
-                        window.getHeight() / 2f,
-                        2f,
-                        2f,
-                        VIEWPORT_BUF
-                ).perspective(
-                        FOV,
-                        (float) window.getWidth() / (float) window.getHeight(),
-                        Z_NEAR,
-                        Z_FAR
-                );
-    }
-
     public static Matrix4f getOrthoProjMatrix(Window window) {
         return ORTHO.setOrtho2D(
                 0f,
@@ -107,25 +87,34 @@ public final class Transformation {
         return ORTHO_CPY.set(orthoMatrix).mul(modelMatrix);
     }
 
+    /**
+     * Get the view of the player, at the position {@linkplain Player#interpolate(float, long) interpolated}
+     * between the last two ticks for the frame.
+     *
+     * @return The view matrix.
+     */
     public static Matrix4f getViewMatrix() {
         return VIEW.rotationX(toRadians(Player.INSTANCE.getRotX()))
                 .rotateY(toRadians(Player.INSTANCE.getRotY()))
                 .translate(
                         -Player.INSTANCE.getX(),
-                        -(Player.INSTANCE.getY() + 1.44f),
+                        -(Player.INSTANCE.getY() + Player.EYE_HEIGHT),
                         -Player.INSTANCE.getZ()
                 );
     }
 
     public static Matrix4f getModelViewMatrix(GameObject gameObject, Matrix4f viewMatrix) {
+        return getModelViewMatrix(
+                gameObject.getPrevX(),
+                gameObject.getPrevY(),
+                gameObject.getPrevZ(),
+                viewMatrix
+        );
+    }
+
+    public static Matrix4f getModelViewMatrix(float x, float y, float z, Matrix4f viewMatrix) {
         return VIEW_CPY.set(viewMatrix)
 //        Matrix4f(VIEW)
-                .mul(
-                        MODEL_VIEW.translation(
-                                gameObject.getPrevX(),
-                                gameObject.getPrevY(),
-                                gameObject.getPrevZ()
-                        )
-                );
+                .mul(MODEL_VIEW.translation(x, y, z));
     }
 }
@@ -25,6 +25,7 @@
 package io.github.overrun.freeworld.event;
 
 import io.github.overrun.freeworld.block.Block;
+import io.github.overrun.freeworld.block.BlockRegistry;
 import io.github.overrun.freeworld.block.Blocks;
 import io.github.overrun.freeworld.client.FreeWorldClient;
 import io.github.overrun.freeworld.entity.player.Player;
@@ -77,28 +78,15 @@ public interface CommandListener {
                 getLogger().error(args[2] + "is not a number");
                 return false;
             }
-            // interact with client direct
-            World world = FreeWorldClient.INSTANCE.getWorld();
-            if (args.length >= 4) {
+            Block found = args.length >= 4 ? BlockRegistry.get(args[3]) : null;
+            Block block = found != null ? found : Blocks.air;
+            // The world is changed on the main thread
+            FreeWorldClient.INSTANCE.execute(() -> {
+                World world = FreeWorldClient.INSTANCE.getWorld();
                 if (world != null) {
-                    Block block;
-                    switch (args[3]) {
-                        case "grass_block":
-                            block = Blocks.grassBlock;
-                            break;
-                        case "dirt":
-                            block = Blocks.dirt;
-                            break;
-                        default:
-                            block = Blocks.air;
-                    }
                     world.setBlock(x, y, z, block, true);
                 }
-            } else {
-                if (world != null) {
-                    world.setBlock(x, y, z, Blocks.air, true);
-                }
-            }
+            });
             return true;
         }
         return false;
@@ -128,9 +116,7 @@ public interface CommandListener {
                 getLogger().error(args[2] + "is not a floating point");
                 return false;
             }
-            Player.INSTANCE.setX(x);
-            Player.INSTANCE.setY(y);
-            Player.INSTANCE.setZ(z);
+            Player.INSTANCE.teleport(x, y, z);
             return true;
         }
         return false;
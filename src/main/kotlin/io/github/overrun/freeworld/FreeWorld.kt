@@ -25,6 +25,7 @@
 package io.github.overrun.freeworld
 
 import io.github.overrun.freeworld.client.FreeWorldClient
+import io.github.overrun.freeworld.client.GameEngine
 import io.github.overrun.freeworld.client.IGameLogic
 import io.github.overrun.freeworld.client.Window
 import io.github.overrun.freeworld.entity.player.Player
@@ -61,29 +62,29 @@ class FreeWorld : IGameLogic, Closeable {
                 Player.rotX = 90f
             if (Player.rotX < -90f)
                 Player.rotX = -90f
-            if (window.isKeyPressed(GLFW_KEY_W))
-                Player.moveRelative(0f, 0f, Player.speed())
-            if (window.isKeyPressed(GLFW_KEY_S))
-                Player.moveRelative(0f, 0f, -Player.speed())
-            if (window.isKeyPressed(GLFW_KEY_A))
-                Player.moveRelative(-Player.speed(), 0f, 0f)
-            if (window.isKeyPressed(GLFW_KEY_D))
-                Player.moveRelative(Player.speed(), 0f, 0f)
-            if (window.isKeyPressed(GLFW_KEY_SPACE))
-                Player.moveRelative(0f, Player.speed(), 0f)
-            if (window.isKeyPressed(GLFW_KEY_LEFT_SHIFT))
-                Player.moveRelative(0f, -Player.speed(), 0f)
+            Player.setInput(
+                axis(window, GLFW_KEY_D, GLFW_KEY_A),
+                axis(window, GLFW_KEY_SPACE, GLFW_KEY_LEFT_SHIFT),
+                axis(window, GLFW_KEY_W, GLFW_KEY_S)
+            )
+        } else {
+            Player.setInput(0f, 0f, 0f)
         }
         lastMouseX = window.mouseX
         lastMouseY = window.mouseY
         client.input()
     }
 
+    private fun axis(window: Window, positive: Int, negative: Int) =
+        (if (window.isKeyPressed(positive)) 1f else 0f) - (if (window.isKeyPressed(negative)) 1f else 0f)
+
     override fun update(delta: Float) =
-        client.update()
+        Player.tick(delta, GameEngine.INSTANCE.tickCount)
 
-    override fun render() =
+    override fun render(alpha: Float) {
+        Player.interpolate(alpha, GameEngine.INSTANCE.frameTick)
         client.render()
+    }
 
     override fun close() =
         client.close()
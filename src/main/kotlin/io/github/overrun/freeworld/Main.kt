@@ -39,6 +39,7 @@ object Main {
                 854,
                 480,
                 System.getProperty("freeworld.vsync", "true").toBoolean(),
+                System.getProperty("freeworld.coreProfile", "false").toBoolean(),
                 it
             ).run()
         }
@@ -31,7 +31,6 @@ import io.github.overrun.freeworld.util.shape.VoxelShapes
  * @author squid233
  * @since 2021/03/25
  */
-class AirBlock(union: BlockMeshUnion?) : Block(union) {
-    override fun render(face: Int) = Unit
+class AirBlock(name: String) : Block(name) {
     override fun getCollisionShape(): VoxelShape = VoxelShapes.EMPTY
 }
\ No newline at end of file
@@ -25,49 +25,61 @@
 package io.github.overrun.freeworld.block
 
 import io.github.overrun.freeworld.block.Blocks.*
-import io.github.overrun.freeworld.client.Mesh
-import io.github.overrun.freeworld.client.game.GameObject
 import io.github.overrun.freeworld.util.shape.VoxelShape
 import io.github.overrun.freeworld.util.shape.VoxelShapes
 
 /**
+ * The type of block.
+ *
+ * Only one instance is created for each type, and it is shared by all
+ * the positions it placed; the position is passed in when needed.
+ *
  * @author squid233
  * @since 2021/03/24
  */
-open class Block(val union: BlockMeshUnion?) : GameObject {
-    override val mesh: Mesh? = null
-    var x = 0
-    var y = 0
-    var z = 0
-
-    override fun getPrevX() = x.toFloat()
-
-    override fun getPrevY() = y.toFloat()
+open class Block(val name: String) {
+    /** The id given by [BlockRegistry]. */
+    var id = -1
+        internal set
 
-    override fun getPrevZ() = z.toFloat()
+    /**
+     * Get the color multiplied to the texture of the face.
+     *
+     * @param face One of the faces in [Blocks].
+     * @return The color in `0xRRGGBB`.
+     */
+    open fun getColor(face: Int) = 0xFFFFFF
 
-    fun faceIs(face: Int, expected: Int) = (face and expected) == expected
-
-    fun renderFace(face: Int, expected: Int) {
-        if (faceIs(face, expected))
-            union?.render(expected)
+    /**
+     * The [faces][Blocks.SIDES] fully covered by the outline shape,
+     * which hide the faces of the blocks next to them.
+     */
+    val fullFaces by lazy {
+        val shape = getOutlineShape()
+        var result = 0
+        if (!shape.isNull) {
+            for (set in shape.sets) {
+                val fullX = set.originX <= 0f && set.endX >= 1f
+                val fullY = set.originY <= 0f && set.endY >= 1f
+                val fullZ = set.originZ <= 0f && set.endZ >= 1f
+                if (fullY && fullZ) {
+                    if (set.originX <= 0f) result = result or FACE_LEFT
+                    if (set.endX >= 1f) result = result or FACE_RIGHT
+                }
+                if (fullX && fullZ) {
+                    if (set.originY <= 0f) result = result or FACE_BOTTOM
+                    if (set.endY >= 1f) result = result or FACE_TOP
+                }
+                if (fullX && fullY) {
+                    if (set.originZ <= 0f) result = result or FACE_BACK
+                    if (set.endZ >= 1f) result = result or FACE_FRONT
+                }
+            }
+        }
+        result
     }
 
     open fun getOutlineShape() = getCollisionShape()
 
     open fun getCollisionShape(): VoxelShape = VoxelShapes.FULL_CUBE
-
-    open fun render(face: Int) {
-        if (face <= 0) return
-        renderFace(face, FACE_FRONT)
-        renderFace(face, FACE_RIGHT)
-        renderFace(face, FACE_TOP)
-        renderFace(face, FACE_LEFT)
-        renderFace(face, FACE_BACK)
-        renderFace(face, FACE_BOTTOM)
-        renderFace(face, FACE_OVERLAY_FRONT)
-        renderFace(face, FACE_OVERLAY_RIGHT)
-        renderFace(face, FACE_OVERLAY_LEFT)
-        renderFace(face, FACE_OVERLAY_BACK)
-    }
 }
\ No newline at end of file
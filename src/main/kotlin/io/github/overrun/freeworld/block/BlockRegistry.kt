@@ -0,0 +1,61 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.block
+
+/**
+ * Gives each [Block] a stable int id, in the order of registering.
+ *
+ * @author squid233
+ * @since 2021/05/07
+ */
+object BlockRegistry {
+    private var byId = arrayOfNulls<Block>(16)
+    private val byName = HashMap<String, Block>()
+    @JvmStatic
+    var size = 0
+        private set
+
+    @JvmStatic
+    fun <T : Block> register(block: T): T {
+        require(!byName.containsKey(block.name)) { "Duplicated block: ${block.name}" }
+        if (size == byId.size)
+            byId = byId.copyOf(size * 2)
+        block.id = size
+        byId[size++] = block
+        byName[block.name] = block
+        return block
+    }
+
+    @JvmStatic
+    operator fun get(id: Int) = byId[id]!!
+
+    @JvmStatic
+    operator fun get(name: String) = byName[name]
+
+    @JvmStatic
+    fun forEach(action: (Block) -> Unit) {
+        for (i in 0 until size) action(byId[i]!!)
+    }
+}
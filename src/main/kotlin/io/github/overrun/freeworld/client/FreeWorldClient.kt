@@ -27,6 +27,7 @@ package io.github.overrun.freeworld.client
 import io.github.overrun.freeworld.server.FreeWorldServer
 import io.github.overrun.freeworld.world.World
 import java.io.Closeable
+import java.util.concurrent.ConcurrentLinkedQueue
 
 /**
  * The client of game.
@@ -39,6 +40,7 @@ FreeWorldClient : Closeable {
     private val renderer = GameRenderer()
     private lateinit var window: Window
     private lateinit var server: FreeWorldServer
+    private val tasks = ConcurrentLinkedQueue<Runnable>()
     var showTab = false
     var world: World? = null
 
@@ -53,10 +55,30 @@ FreeWorldClient : Closeable {
     fun input() =
         renderer.input(window)
 
-    fun update() =
-        renderer.update()
+    fun toggleGreedyMeshing() =
+        renderer.toggleGreedyMeshing()
+
+    /**
+     * Run the task on the main thread before the next frame.
+     *
+     * The [world] is read by the chunk renderer, so the other threads
+     * change it through here.
+     */
+    fun execute(task: Runnable) {
+        tasks.add(task)
+    }
+
+    /** Run the [executed][execute] tasks, on the main thread. */
+    fun runTasks() {
+        var task = tasks.poll()
+        while (task != null) {
+            task.run()
+            task = tasks.poll()
+        }
+    }
 
     fun render() {
+        runTasks()
         if (world != null)
             renderer.render(window)
     }
@@ -24,10 +24,25 @@
 
 package io.github.overrun.freeworld.client
 
+import io.github.overrun.freeworld.FreeWorld.Companion.logger
+import io.github.overrun.freeworld.util.Handoff
+import io.github.overrun.freeworld.util.JitterHistogram
 import io.github.overrun.freeworld.util.Timer
 
-
 /**
+ * Runs [IGameLogic.update] on a simulation thread at [TARGET_UPS], and
+ * [IGameLogic.input] and [IGameLogic.render] on the main thread, limited
+ * to [TARGET_FPS] unless by the vsync.
+ *
+ * The ticks catch up after a slow tick, so that their count follows the
+ * time, but the frames don't. Each tick publishes its [TickState] for the
+ * main thread to [read][lastTick], and each frame is rendered with the part
+ * of a tick passed since the last one, to draw the moving objects between
+ * the ticks.
+ *
+ * With `-Dfreeworld.debug.timing=true`, the [tickJitter] and [frameJitter]
+ * are logged every few seconds.
+ *
  * @author squid233
  * @since 2021/03/18
  */
@@ -37,11 +52,16 @@ private constructor(
     width: Int,
     height: Int,
     vSync: Boolean,
+    coreProfile: Boolean,
     private val logic: IGameLogic
 ) {
     companion object {
         val TARGET_FPS = System.getProperty("freeworld.fps", "60").toInt()
         val TARGET_UPS = System.getProperty("freeworld.ups", "30").toInt()
+        private val LOG_TIMING = System.getProperty("freeworld.debug.timing", "false").toBoolean()
+        private const val LOG_INTERVAL = 5_000_000_000L
+        /** The ticks to catch up by at most, after which some are skipped. */
+        private const val MAX_TICK_LAG = 5
 
         @JvmStatic
         lateinit var INSTANCE: GameEngine
@@ -53,19 +73,47 @@ private constructor(
             width: Int,
             height: Int,
             vSync: Boolean,
+            coreProfile: Boolean,
             logic: IGameLogic
         ): GameEngine {
-            INSTANCE = GameEngine(title, width, height, vSync, logic)
+            INSTANCE = GameEngine(title, width, height, vSync, coreProfile, logic)
             return INSTANCE
         }
     }
 
-    val window = Window(title, width, height, vSync)
-    private val timer = Timer()
+    /**
+     * The state of a finished tick.
+     */
+    class TickState {
+        /** The ticks run, this one included. */
+        var count = 0L
+        /** The [System.nanoTime] the tick started at. */
+        var time = 0L
+    }
+
+    val window = Window(title, width, height, vSync, coreProfile)
+    val tickJitter = JitterHistogram("ticks")
+    val frameJitter = JitterHistogram("frames")
+    private val tickTimer = Timer(TARGET_UPS, MAX_TICK_LAG, tickJitter)
+    private val frameTimer = if (TARGET_FPS > 0) Timer(TARGET_FPS, 0, frameJitter) else null
+    private val ticks = Handoff { TickState() }
+    private val simulation = Thread(::simulate, "Simulation")
+
+    /** The number of the tick being run, on the simulation thread. */
+    var tickCount = 0L
+        private set
+
+    /** The number of the tick the frame being rendered follows, on the main thread. */
+    var frameTick = 0L
+        private set
+    @Volatile
+    private var running = false
+    @Volatile
+    private var failure: Throwable? = null
 
     fun init() {
         window.init()
-        timer.init()
+        Profiler.init()
         logic.init()
         window.show()
     }
@@ -77,43 +125,73 @@ private constructor(
         logic.update(interval)
 
     fun render() {
-        logic.render()
-        window.update()
+        val tick = lastTick()
+        frameTick = tick.count
+        val alpha = if (tick.count == 0L) 1f
+        else ((System.nanoTime() - tick.time).toFloat() / tickTimer.period).coerceIn(0f, 1f)
+        Profiler.section("render") { logic.render(alpha) }
+        Profiler.section("swap") { window.update() }
     }
 
-    private fun loop() {
-        var elapsedTime: Float
-        var accumulator = 0f
+    /** The state of the last tick, on the main thread. */
+    fun lastTick(): TickState =
+        ticks.read()
+
+    private fun simulate() {
         val interval = 1f / TARGET_UPS
-        while (!window.shouldClose()) {
-            elapsedTime = timer.getElapsedTime()
-            accumulator += elapsedTime
-            input()
-            while (accumulator >= interval) {
+        try {
+            tickTimer.init()
+            while (running) {
+                tickTimer.await()
+                val time = System.nanoTime()
+                ++tickCount
                 update(interval)
-                accumulator -= interval
-            }
-            render()
-            if (window.vSync) {
-                sync()
+                with(ticks.write) {
+                    count = tickCount
+                    this.time = time
+                }
+                ticks.publish()
             }
+        } catch (t: Throwable) {
+            failure = t
+            running = false
         }
-        window.close()
     }
 
-    private fun sync() {
-        val loopSlot: Float = 1f / TARGET_FPS
-        val endTime = timer.lastLoopTime + loopSlot
-        while (timer.getTime() < endTime) {
-            try {
-                Thread.sleep(1)
-            } catch (ie: InterruptedException) {
+    private fun loop() {
+        running = true
+        simulation.start()
+        frameTimer?.init()
+        var lastLogTime = System.nanoTime()
+        try {
+            while (running && !window.shouldClose()) {
+                Profiler.beginFrame()
+                Profiler.push("frame")
+                Profiler.section("input") { input() }
+                render()
+                if (!window.vSync) {
+                    Profiler.section("wait") { frameTimer?.await() }
+                }
+                Profiler.pop()
+                Profiler.endFrame()
+                if (LOG_TIMING && System.nanoTime() - lastLogTime >= LOG_INTERVAL) {
+                    logger.info("$tickJitter; $frameJitter")
+                    tickJitter.reset()
+                    frameJitter.reset()
+                    lastLogTime = System.nanoTime()
+                }
             }
+        } finally {
+            running = false
+            simulation.join()
         }
+        failure?.let { throw IllegalStateException("The simulation thread failed", it) }
+        Profiler.close()
+        window.close()
     }
 
     fun run() {
         init()
         loop()
     }
-}
\ No newline at end of file
+}
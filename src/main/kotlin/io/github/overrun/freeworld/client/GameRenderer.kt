@@ -24,135 +24,65 @@
 
 package io.github.overrun.freeworld.client
 
+import io.github.overrun.freeworld.FreeWorld.Companion.logger
 import io.github.overrun.freeworld.block.Block
 import io.github.overrun.freeworld.block.Blocks
-import io.github.overrun.freeworld.client.GlStateManager.disableCullFace
-import io.github.overrun.freeworld.client.GlStateManager.enableCullFace
-import io.github.overrun.freeworld.client.game.BaseGameObject2D
+import io.github.overrun.freeworld.client.GlStateManager.*
+import io.github.overrun.freeworld.client.gl.backend
+import io.github.overrun.freeworld.client.render.BlockSprites
+import io.github.overrun.freeworld.client.render.ChunkRenderer
+import io.github.overrun.freeworld.client.render.RenderStats
+import io.github.overrun.freeworld.client.render.StreamRenderer
 import io.github.overrun.freeworld.entity.player.Player
 import io.github.overrun.freeworld.util.HitResult
-import io.github.overrun.freeworld.util.Utils.intArrayOfSize
-import io.github.overrun.freeworld.util.Utils.makeColor1f
+import io.github.overrun.freeworld.world.Raycast
 import io.github.overrun.freeworld.world.World
 import org.joml.Matrix4f
 import org.lwjgl.glfw.GLFW.*
 import org.lwjgl.opengl.GL15.*
-import org.lwjgl.system.MemoryUtil
 import java.io.Closeable
+import kotlin.math.cos
+import kotlin.math.sin
 
 /**
  * @author squid233
  * @since 2021/03/18
  */
 class GameRenderer : Closeable {
-    private val selectBuffer = MemoryUtil.memAllocInt(2000)
+    companion object {
+        val WORLD_RADIUS = System.getProperty("freeworld.world.radius", "2").toInt()
+        val WORLD_HEIGHT = System.getProperty("freeworld.world.height", "64").toInt()
+        /** The max distance to pick blocks. */
+        const val REACH = 6f
+        private const val OUTLINE_COLOR = 0xff000000.toInt()
+        private const val CROSS_HAIR_COLOR = 0xffffffff.toInt()
+        private const val BLOCKS_TAB_COLOR = 0x80000000.toInt()
+    }
+
     private val hitResult = HitResult()
     private lateinit var block: Block
     private lateinit var world: World
     private lateinit var program: GlProgram
+    private lateinit var chunkProgram: GlProgram
     private lateinit var program2D: GlProgram
-    private lateinit var crossHair: BaseGameObject2D
-    private lateinit var blocksTab: BaseGameObject2D
-    private lateinit var hitResultBox: Mesh
+    private lateinit var streamRenderer: StreamRenderer
+    private lateinit var chunkRenderer: ChunkRenderer
+    private lateinit var blockAtlas: Texture
 
     fun init() {
         program = GlProgram.of("shader/core/block")
+        val multiDraw = ChunkRenderer.isMultiDrawSupported()
+        chunkProgram = if (multiDraw) GlProgram.of("shader/core/chunk_batch", "shader/core/chunk")
+        else GlProgram.of("shader/core/chunk")
         program2D = GlProgram.of("shader/core/gui")
-        Blocks.init(program)
+        blockAtlas = BlockSprites.stitch()
         block = Blocks.grassBlock
-        FreeWorldClient.world = World(64, 64, 64)
+        FreeWorldClient.world = World(WORLD_HEIGHT, WORLD_RADIUS)
         world = FreeWorldClient.world!!
-        crossHair = BaseGameObject2D(
-            Mesh.of(
-                "cross_hair",
-                program2D,
-                floatArrayOf(
-                    -9f, 1f, 0f,
-                    -9f, -1f, 0f,
-                    9f, -1f, 0f,
-                    9f, 1f, 0f,
-                    -1f, -9f, 0f,
-                    -1f, 9f, 0f,
-                    1f, 9f, 0f,
-                    1f, -9f, 0f
-                ),
-                makeColor1f(8),
-                null,
-                intArrayOf(
-                    0, 1, 2, 3, 4, 5, 6, 7
-                ),
-                mode = GL_QUADS
-            )
-        )
-        blocksTab = BaseGameObject2D(
-            Mesh.of(
-                "blocksTab",
-                program2D,
-                floatArrayOf(
-                    -250f, -150f, 0f,
-                    -250f, 150f, 0f,
-                    250f, 150f, 0f,
-                    250f, -150f, 0f
-                ),
-                floatArrayOf(
-                    0f, 0f, 0f, 0.5f,
-                    0f, 0f, 0f, 0.5f,
-                    0f, 0f, 0f, 0.5f,
-                    0f, 0f, 0f, 0.5f
-                ),
-                null,
-                intArrayOf(0, 1, 2, 3),
-                mode = GL_QUADS
-            )
-        )
-        hitResultBox = Mesh.of(
-            "hitResultBox",
-            program,
-            floatArrayOf(
-                -0.001f, -0.001f, -0.001f,
-                -0.001f, 1.001f, -0.001f,
-                1.001f, 1.001f, -0.001f,
-                1.001f, -0.001f, -0.001f,
-                -0.001f, -0.001f, 1.001f,
-                -0.001f, 1.001f, 1.001f,
-                1.001f, 1.001f, 1.001f,
-                1.001f, -0.001f, 1.001f
-                /*0f, 0f, 1f,
-                  0f, 1f, 1f,
-                  1f, 1f, 1f,
-                  1f, 0f, 1f,
-                  0f, 0f, 0f,
-                  0f, 1f, 0f,
-                  1f, 0f, 0f,
-                  1f, 0f, 0f*/
-            ),
-            floatArrayOf(
-                0f, 0f, 0f, 1f,
-                0f, 0f, 0f, 1f,
-                0f, 0f, 0f, 1f,
-                0f, 0f, 0f, 1f,
-                0f, 0f, 0f, 1f,
-                0f, 0f, 0f, 1f,
-                0f, 0f, 0f, 1f,
-                0f, 0f, 0f, 1f
-            ),
-            null,
-            intArrayOf(
-                // front
-                3, 2, 1, 0,
-                // right
-                7, 6, 2, 3,
-                // top
-                1, 2, 6, 5,
-                // left
-                0, 1, 5, 4,
-                // back
-                4, 5, 6, 7,
-                // bottom
-                0, 4, 7, 3
-            ),
-            mode = GL_QUADS
-        )
+        world.updateChunks(Player.x, Player.z)
+        chunkRenderer = ChunkRenderer(blockAtlas, multiDraw)
+        logger.info("Chunk submission: ${if (multiDraw) "multi-draw indirect" else "draw per section"}")
+        streamRenderer = StreamRenderer()
     }
 
     fun input(window: Window) {
@@ -182,76 +112,60 @@ class GameRenderer : Closeable {
         }
     }
 
-    fun update() = Unit
+    fun toggleGreedyMeshing() {
+        chunkRenderer.greedyMeshing = !chunkRenderer.greedyMeshing
+    }
 
-    private fun pick(viewMatrix: Matrix4f) {
-        glSelectBuffer(selectBuffer.clear())
-        glRenderMode(GL_SELECT)
-        world.pick(program, viewMatrix)
-        val hits = glRenderMode(GL_RENDER)
-        selectBuffer.flip().limit(selectBuffer.capacity())
-        var closest = 0L
-        val names = intArrayOfSize(10)
-        var hitNameCount = 0
-        for (i in 0 until hits) {
-            val nameCount = selectBuffer.get()
-            val minZ = selectBuffer.get().toLong()
-            selectBuffer.get()
-            if (minZ >= closest && i != 0) {
-                for (j in 0 until nameCount)
-                    selectBuffer.get()
-            } else {
-                closest = minZ
-                hitNameCount = nameCount
-                for (j in 0 until nameCount) {
-                    names[j] = selectBuffer.get()
-                }
-            }
-        }
-        if (hitNameCount > 0) {
-            hitResult.isNull = false
-            hitResult.x = names[1]
-            hitResult.y = names[2]
-            hitResult.z = names[3]
-            hitResult.face = names[4]
-            hitResult.block = world.getBlock(hitResult.x, hitResult.y, hitResult.z)
-        } else hitResult.isNull = true
+    private fun pick() {
+        val pitch = Math.toRadians(Player.rotX.toDouble())
+        val yaw = Math.toRadians(Player.rotY.toDouble())
+        Raycast.cast(
+            world,
+            Player.x,
+            Player.y + Player.EYE_HEIGHT,
+            Player.z,
+            (cos(pitch) * sin(yaw)).toFloat(),
+            -sin(pitch).toFloat(),
+            (-cos(pitch) * cos(yaw)).toFloat(),
+            REACH,
+            hitResult
+        )
     }
 
     fun render(window: Window) {
-        glClear(GL_COLOR_BUFFER_BIT or GL_DEPTH_BUFFER_BIT)
+        // The world is only changed on the main thread, which the chunk renderer reads it from
+        Profiler.section("loadChunks") { world.updateChunks(Player.x, Player.z) }
+        backend.glClear(GL_COLOR_BUFFER_BIT or GL_DEPTH_BUFFER_BIT)
         if (window.resized) {
-            crossHair.x = window.width / 2
-            crossHair.y = window.height / 2
-            blocksTab.x = window.width / 2
-            blocksTab.y = window.height / 2
-            glViewport(0, 0, window.width, window.height)
+            backend.glViewport(0, 0, window.width, window.height)
             window.resized = false
         }
+        val viewMatrix = Transformation.getViewMatrix()
+        if (!FreeWorldClient.showTab) Profiler.section("pick") { pick() }
+        with(chunkProgram) {
+            bind()
+            setUniform("texSampler", 0)
+            val projectionMatrix = Transformation.getProjectionMatrix(window)
+            setUniform("projectionMatrix", projectionMatrix)
+            Profiler.section("world") { chunkRenderer.render(world, this, projectionMatrix, viewMatrix) }
+        }
         with(program) {
             bind()
-            val viewMatrix = Transformation.getViewMatrix()
             setUniform("texSampler", 0)
-            if (!FreeWorldClient.showTab) {
-                setUniform(
-                    "projectionMatrix",
-                    Transformation.getPickMatrix(window)
-                )
-                pick(viewMatrix)
-            }
             setUniform(
                 "projectionMatrix",
                 Transformation.getProjectionMatrix(window)
             )
-            world.render(this, viewMatrix)
             disableCullFace()
-            renderHint(viewMatrix)
+            Profiler.section("hint") { renderHint(viewMatrix) }
         }
-        glDisable(GL_DEPTH_TEST)
-        renderGui(window)
+        disableDepthTest()
+        Profiler.section("gui") { renderGui(window) }
         enableCullFace()
-        glEnable(GL_DEPTH_TEST)
+        enableDepthTest()
         GlProgram.unbind()
+        streamRenderer.endFrame()
+        RenderStats.endFrame()
     }
 
     private fun renderHint(viewMatrix: Matrix4f) {
@@ -265,90 +179,77 @@ class GameRenderer : Closeable {
                 hitResult.y,
                 hitResult.z
             ).getOutlineShape().isNull) {
-//            -0.001f, -0.001f, -0.001f,
-//            -0.001f, 1.001f, -0.001f,
-//            1.001f, 1.001f, -0.001f,
-//            1.001f, -0.001f, -0.001f,
-//            -0.001f, -0.001f, 1.001f,
-//            -0.001f, 1.001f, 1.001f,
-//            1.001f, 1.001f, 1.001f,
-//            1.001f, -0.001f, 1.001f
-            glPolygonMode(GL_FRONT_AND_BACK, GL_LINE)
-            for (set in hitResult.block.getOutlineShape().sets) {
-                hitResultBox.vertices[0] = set.originX - 0.001f
-                hitResultBox.vertices[1] = set.originY - 0.001f
-                hitResultBox.vertices[2] = set.originZ - 0.001f
-
-                hitResultBox.vertices[3] = set.originX - 0.001f
-                hitResultBox.vertices[4] = set.endY + 0.001f
-                hitResultBox.vertices[5] = set.originZ - 0.001f
-
-                hitResultBox.vertices[6] = set.endX + 0.001f
-                hitResultBox.vertices[7] = set.endY + 0.001f
-                hitResultBox.vertices[8] = set.originZ - 0.001f
-
-                hitResultBox.vertices[9] = set.endX + 0.001f
-                hitResultBox.vertices[10] = set.originY - 0.001f
-                hitResultBox.vertices[11] = set.originZ - 0.001f
-
-                hitResultBox.vertices[12] = set.originX - 0.001f
-                hitResultBox.vertices[13] = set.originY - 0.001f
-                hitResultBox.vertices[14] = set.endZ + 0.001f
-
-                hitResultBox.vertices[15] = set.originX - 0.001f
-                hitResultBox.vertices[16] = set.endY + 0.001f
-                hitResultBox.vertices[17] = set.endZ + 0.001f
-
-                hitResultBox.vertices[18] = set.endX + 0.001f
-                hitResultBox.vertices[19] = set.endY + 0.001f
-                hitResultBox.vertices[20] = set.endZ + 0.001f
-
-                hitResultBox.vertices[21] = set.endX + 0.001f
-                hitResultBox.vertices[22] = set.originY - 0.001f
-                hitResultBox.vertices[23] = set.endZ + 0.001f
-                hitResultBox.render()
+            val sets = hitResult.block.getOutlineShape().sets
+            // 12 edges for each box
+            streamRenderer.begin(GL_LINES, sets.size * 24)
+            for (set in sets) {
+                val x0 = set.originX - 0.001f
+                val y0 = set.originY - 0.001f
+                val z0 = set.originZ - 0.001f
+                val x1 = set.endX + 0.001f
+                val y1 = set.endY + 0.001f
+                val z1 = set.endZ + 0.001f
+                rect(x0, y0, x1, y1, z0)
+                rect(x0, y0, x1, y1, z1)
+                line(x0, y0, z0, x0, y0, z1)
+                line(x0, y1, z0, x0, y1, z1)
+                line(x1, y1, z0, x1, y1, z1)
+                line(x1, y0, z0, x1, y0, z1)
             }
-            glPolygonMode(GL_FRONT_AND_BACK, GL_FILL)
+            streamRenderer.end(program)
         }
     }
 
+    private fun rect(x0: Float, y0: Float, x1: Float, y1: Float, z: Float) {
+        line(x0, y0, z, x0, y1, z)
+        line(x0, y1, z, x1, y1, z)
+        line(x1, y1, z, x1, y0, z)
+        line(x1, y0, z, x0, y0, z)
+    }
+
+    private fun line(x0: Float, y0: Float, z0: Float, x1: Float, y1: Float, z1: Float) {
+        streamRenderer.vertex(x0, y0, z0, OUTLINE_COLOR).vertex(x1, y1, z1, OUTLINE_COLOR)
+    }
+
     private fun renderGui(window: Window) {
         with(program2D) {
             bind()
-            val proj = Transformation.getOrthoProjMatrix(window)
             setUniform("texSampler", 0)
+            setUniform("projModelViewMat", Transformation.getOrthoProjMatrix(window))
+            val x = window.width / 2f
+            val y = window.height / 2f
             if (FreeWorldClient.showTab) {
-                setUniform(
-                    "projModelViewMat",
-                    Transformation.getOrthoProjModelMatrix(
-                        blocksTab,
-                        proj
-                    )
-                )
-                blocksTab.render()
+                streamRenderer.begin(GL_TRIANGLES, 6)
+                streamRenderer.quad(x - 250f, y - 150f, x + 250f, y + 150f, 0f, BLOCKS_TAB_COLOR)
             } else {
-                setUniform(
-                    "projModelViewMat",
-                    Transformation.getOrthoProjModelMatrix(
-                        crossHair,
-                        proj
-                    )
-                )
-                crossHair.render()
+                streamRenderer.begin(GL_TRIANGLES, 12)
+                streamRenderer.quad(x - 9f, y - 1f, x + 9f, y + 1f, 0f, CROSS_HAIR_COLOR)
+                streamRenderer.quad(x - 1f, y - 9f, x + 1f, y + 9f, 0f, CROSS_HAIR_COLOR)
             }
+            streamRenderer.end(this)
         }
     }
 
     override fun close() {
-        MemoryUtil.memFree(selectBuffer)
-        Mesh.closeAll()
+        if (this::chunkRenderer.isInitialized)
+            chunkRenderer.close()
+        if (this::streamRenderer.isInitialized)
+            streamRenderer.close()
+        if (this::blockAtlas.isInitialized)
+            blockAtlas.close()
+        // The vertex arrays keep the attributes in the core profile
+        val core = GlStateManager.isCoreProfile()
         if (this::program.isInitialized) {
             program.close()
-            program.disableVertexAttribArrays("vert", "in_color", "in_texCoord")
+            if (!core) program.disableVertexAttribArrays("vert", "in_color", "in_texCoord")
+        }
+        if (this::chunkProgram.isInitialized) {
+            chunkProgram.close()
+            if (!core) chunkProgram.disableVertexAttribArrays("in_position", "in_tile", "in_color")
         }
         if (this::program2D.isInitialized) {
             program2D.close()
-            program2D.disableVertexAttribArrays("vert", "in_color", "in_texCoord")
+            if (!core) program2D.disableVertexAttribArrays("vert", "in_color", "in_texCoord")
         }
         GlProgram.unbind()
     }
@@ -25,6 +25,7 @@
 package io.github.overrun.freeworld.client
 
 import io.github.overrun.freeworld.FreeWorld.Companion.logger
+import io.github.overrun.freeworld.client.gl.backend
 import io.github.overrun.freeworld.util.Utils.readLines
 import io.github.overrun.freeworld.util.Utils.use
 import org.joml.Matrix4f
@@ -33,23 +34,45 @@ import org.lwjgl.system.MemoryStack
 import java.io.Closeable
 
 /**
+ * The uniforms and attributes are resolved when [linked][link]. The hot
+ * paths should keep the [typed handles][GlUniform], which skip setting
+ * the same values.
+ *
  * @author squid233
  * @since 2021/03/18
  */
 class GlProgram : Closeable {
-    private val uniforms = HashMap<String, Int>()
-    private val programId = glCreateProgram()
+    private val uniforms = HashMap<String, GlUniform>()
+    private val attributes = HashMap<String, Int>()
+    private val programId = backend.glCreateProgram()
     private var vshId = 0
     private var fshId = 0
 
     companion object {
+        /**
+         * Create the program from `shader.vsh` and `shader.fsh`, or from
+         * the `#version 330` variants `shader_330.vsh` and `shader_330.fsh`
+         * in the [core profile][GlStateManager.isCoreProfile].
+         */
         @JvmStatic
         fun of(shader: String) =
-            GlProgram().createSh(shader)
+            GlProgram().createSh(variant(shader))
+
+        /**
+         * Create the program from two shaders of different names, like [of].
+         */
+        @JvmStatic
+        fun of(vertexShader: String, fragmentShader: String) =
+            GlProgram().createVsh(readLines("${variant(vertexShader)}.vsh"))
+                .createFsh(readLines("${variant(fragmentShader)}.fsh"))
+                .link()
+
+        private fun variant(shader: String) =
+            if (GlStateManager.isCoreProfile()) "${shader}_330" else shader
 
         @JvmStatic
         fun unbind() =
-            glUseProgram(0)
+            GlStateManager.useProgram(0)
     }
 
     fun createSh(
@@ -75,100 +98,163 @@ class GlProgram : Closeable {
     }
 
     private fun createShader(src: String, type: Int): Int {
-        val id = glCreateShader(type)
+        val id = backend.glCreateShader(type)
         if (id == 0)
             throw NullPointerException(
                 "Failed to create shader (Shader type: $type)"
             )
-        glShaderSource(id, src)
-        glCompileShader(id)
-        if (glGetShaderi(id, GL_COMPILE_STATUS) == GL_FALSE)
-            throw RuntimeException("Error compiling shader src: ${glGetShaderInfoLog(id)}")
-        glAttachShader(programId, id)
+        backend.glShaderSource(id, src)
+        backend.glCompileShader(id)
+        if (backend.glGetShaderi(id, GL_COMPILE_STATUS) == GL_FALSE)
+            throw RuntimeException("Error compiling shader src: ${backend.glGetShaderInfoLog(id)}")
+        backend.glAttachShader(programId, id)
         return id
     }
 
     fun link(): GlProgram {
-        glLinkProgram(programId)
-        if (glGetProgrami(programId, GL_LINK_STATUS) == GL_FALSE) {
-            throw RuntimeException("Error linking GL program: ${glGetProgramInfoLog(programId)}")
+        backend.glLinkProgram(programId)
+        if (backend.glGetProgrami(programId, GL_LINK_STATUS) == GL_FALSE) {
+            throw RuntimeException("Error linking GL program: ${backend.glGetProgramInfoLog(programId)}")
         }
-        if (vshId != 0) glDetachShader(programId, vshId)
-        if (fshId != 0) glDetachShader(programId, fshId)
-        glValidateProgram(programId)
-        if (glGetProgrami(programId, GL_VALIDATE_STATUS) == GL_FALSE)
-            logger.warn(glGetProgramInfoLog(programId))
+        if (vshId != 0) backend.glDetachShader(programId, vshId)
+        if (fshId != 0) backend.glDetachShader(programId, fshId)
+        backend.glValidateProgram(programId)
+        if (backend.glGetProgrami(programId, GL_VALIDATE_STATUS) == GL_FALSE)
+            logger.warn(backend.glGetProgramInfoLog(programId))
+        resolveLocations()
         return this
     }
 
+    private fun resolveLocations() = MemoryStack.stackPush().use {
+        val size = it.mallocInt(1)
+        val type = it.mallocInt(1)
+        for (i in 0 until backend.glGetProgrami(programId, GL_ACTIVE_UNIFORMS)) {
+            // The arrays are named like "name[0]"
+            val name = backend.glGetActiveUniform(programId, i, size, type).removeSuffix("[0]")
+            val uniform = GlUniform.of(name, backend.glGetUniformLocation(programId, name), type[0], size[0])
+            if (uniform != null) uniforms[name] = uniform
+            else logger.warn("Unsupported type ${type[0]} of uniform \"$name\"")
+        }
+        for (i in 0 until backend.glGetProgrami(programId, GL_ACTIVE_ATTRIBUTES)) {
+            val name = backend.glGetActiveAttrib(programId, i, size, type)
+            attributes[name] = backend.glGetAttribLocation(programId, name)
+        }
+    }
+
     fun bind() =
-        glUseProgram(programId)
+        GlStateManager.useProgram(programId)
 
     fun hasUniform(name: String) =
-        glGetUniformLocation(programId, name) >= 0
+        uniforms.containsKey(name)
 
     fun getUniform(name: String) =
-        uniforms.computeIfAbsent(name) { s ->
-            val loc = glGetUniformLocation(programId, s)
-            require(hasUniform(s)) { "Couldn't find uniform: \"$s\"" }
-            loc
-        }
+        requireNotNull(uniforms[name]) { "Couldn't find uniform: \"$name\"" }
+
+    private inline fun <reified T : GlUniform> getTyped(name: String): T {
+        val uniform = getUniform(name)
+        require(uniform is T) { "Uniform \"$name\" is not a ${T::class.java.simpleName}" }
+        return uniform
+    }
+
+    fun getInt(name: String) = getTyped<GlUniform.Int1>(name)
+
+    /** Get the int uniform, or `null` if the program doesn't use it. */
+    fun findInt(name: String) = uniforms[name] as? GlUniform.Int1
+
+    fun getFloat(name: String) = getTyped<GlUniform.Float1>(name)
+
+    fun getVec3(name: String) = getTyped<GlUniform.Vec3>(name)
+
+    fun getVec4(name: String) = getTyped<GlUniform.Vec4>(name)
+
+    fun getMat4(name: String) = getTyped<GlUniform.Mat4>(name)
 
     fun setUniform(name: String, matrix4f: Matrix4f) =
-        MemoryStack.stackPush().use {
-            glUniformMatrix4fv(
-                getUniform(name),
-                false,
-                matrix4f[it.mallocFloat(16)]
-            )
-        }
+        getMat4(name).set(matrix4f)
 
     fun setUniform(name: String, value: Int) =
-        glUniform1i(getUniform(name), value)
+        getInt(name).set(value)
+
+    fun setUniform(name: String, x: Float, y: Float, z: Float) =
+        getVec3(name).set(x, y, z)
+
+    /**
+     * Set a `vec4` array uniform, 4 floats for each element.
+     */
+    fun setUniformVec4s(name: String, values: FloatArray) =
+        getVec4(name).set(values)
+
+    /**
+     * Get the location of the attribute, or -1 if the program doesn't use it.
+     */
+    fun getAttribLocation(name: String) =
+        attributes[name] ?: -1
 
     fun enableVertexAttribArray(name: String) =
-        glEnableVertexAttribArray(glGetAttribLocation(programId, name))
+        enableVertexAttribArray(getAttribLocation(name))
+
+    fun enableVertexAttribArray(location: Int) {
+        if (location >= 0) backend.glEnableVertexAttribArray(location)
+    }
 
     fun vertexAttribPointer(
         name: String,
         size: Int,
         type: Int,
         normalized: Boolean,
-        stride: Int
-    ) = glVertexAttribPointer(
-        glGetAttribLocation(programId, name),
-        size,
-        type,
-        normalized,
-        stride,
-        0
-    )
+        stride: Int,
+        pointer: Long = 0L
+    ) = vertexAttribPointer(getAttribLocation(name), size, type, normalized, stride, pointer)
+
+    fun vertexAttribPointer(
+        location: Int,
+        size: Int,
+        type: Int,
+        normalized: Boolean,
+        stride: Int,
+        pointer: Long = 0L
+    ) {
+        if (location >= 0) backend.glVertexAttribPointer(location, size, type, normalized, stride, pointer)
+    }
 
     fun enableVertAttribArrPtr(
         name: String,
         size: Int,
         type: Int,
         normalized: Boolean,
-        stride: Int
+        stride: Int,
+        pointer: Long = 0L
+    ) = enableVertAttribArrPtr(getAttribLocation(name), size, type, normalized, stride, pointer)
+
+    fun enableVertAttribArrPtr(
+        location: Int,
+        size: Int,
+        type: Int,
+        normalized: Boolean,
+        stride: Int,
+        pointer: Long = 0L
     ) {
-        enableVertexAttribArray(name)
+        enableVertexAttribArray(location)
         vertexAttribPointer(
-            name,
+            location,
             size,
             type,
             normalized,
-            stride
+            stride,
+            pointer
         )
     }
 
     fun disableVertexAttribArrays(vararg names: String) {
-        for (nm in names)
-            glDisableVertexAttribArray(glGetAttribLocation(programId, nm))
+        for (nm in names) {
+            val location = getAttribLocation(nm)
+            if (location >= 0) backend.glDisableVertexAttribArray(location)
+        }
     }
 
     override fun close() {
-        if (programId != 0) glDeleteProgram(programId)
-        if (vshId != 0) glDeleteShader(vshId)
-        if (fshId != 0) glDeleteShader(fshId)
+        if (programId != 0) backend.glDeleteProgram(programId)
+        if (vshId != 0) backend.glDeleteShader(vshId)
+        if (fshId != 0) backend.glDeleteShader(fshId)
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,139 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client
+
+import io.github.overrun.freeworld.client.gl.backend
+import org.joml.Matrix4f
+import org.lwjgl.opengl.GL20.*
+
+/**
+ * A uniform of a [GlProgram], resolved when the program is linked.
+ *
+ * The handle keeps the last value, and setting the same value again
+ * doesn't reach GL. The program must be [bound][GlProgram.bind] to set it.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+sealed class GlUniform(val name: String, val location: Int) {
+    companion object {
+        /**
+         * Create the handle of an active uniform.
+         *
+         * @param type The type from `glGetActiveUniform`.
+         * @param size The count of the array elements, 1 if not an array.
+         * @return The handle, or `null` if the type isn't supported.
+         */
+        @JvmStatic
+        fun of(name: String, location: Int, type: Int, size: Int): GlUniform? =
+            when (type) {
+                GL_INT, GL_BOOL, GL_SAMPLER_2D -> Int1(name, location)
+                GL_FLOAT -> Float1(name, location)
+                GL_FLOAT_VEC3 -> Vec3(name, location)
+                GL_FLOAT_VEC4 -> Vec4(name, location, size)
+                GL_FLOAT_MAT4 -> Mat4(name, location)
+                else -> null
+            }
+    }
+
+    /** Whether the value is known, it isn't until the first set. */
+    protected var valid = false
+
+    class Int1(name: String, location: Int) : GlUniform(name, location) {
+        private var value = 0
+
+        fun set(value: Int) {
+            if (valid && this.value == value) return
+            this.value = value
+            valid = true
+            backend.glUniform1i(location, value)
+        }
+    }
+
+    class Float1(name: String, location: Int) : GlUniform(name, location) {
+        private var value = 0f
+
+        fun set(value: Float) {
+            if (valid && this.value == value) return
+            this.value = value
+            valid = true
+            backend.glUniform1f(location, value)
+        }
+    }
+
+    class Vec3(name: String, location: Int) : GlUniform(name, location) {
+        private var x = 0f
+        private var y = 0f
+        private var z = 0f
+
+        fun set(x: Float, y: Float, z: Float) {
+            if (valid && this.x == x && this.y == y && this.z == z) return
+            this.x = x
+            this.y = y
+            this.z = z
+            valid = true
+            backend.glUniform3f(location, x, y, z)
+        }
+    }
+
+    /**
+     * A `vec4`, or an array of them with 4 floats for each element.
+     */
+    class Vec4(name: String, location: Int, val size: Int) : GlUniform(name, location) {
+        private val values = FloatArray(size * 4)
+
+        fun set(x: Float, y: Float, z: Float, w: Float) {
+            if (valid && values[0] == x && values[1] == y && values[2] == z && values[3] == w) return
+            values[0] = x
+            values[1] = y
+            values[2] = z
+            values[3] = w
+            valid = size == 1
+            backend.glUniform4f(location, x, y, z, w)
+        }
+
+        fun set(values: FloatArray) {
+            require(values.size == this.values.size) {
+                "Expected ${this.values.size} floats for uniform \"$name\", got ${values.size}"
+            }
+            if (valid && values.contentEquals(this.values)) return
+            values.copyInto(this.values)
+            valid = true
+            backend.glUniform4fv(location, values)
+        }
+    }
+
+    class Mat4(name: String, location: Int) : GlUniform(name, location) {
+        private val value = Matrix4f()
+        private val array = FloatArray(16)
+
+        fun set(matrix: Matrix4f) {
+            if (valid && value == matrix) return
+            value.set(matrix)
+            valid = true
+            backend.glUniformMatrix4fv(location, false, matrix.get(array))
+        }
+    }
+}
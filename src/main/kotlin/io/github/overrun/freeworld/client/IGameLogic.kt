@@ -31,9 +31,21 @@ package io.github.overrun.freeworld.client
 interface IGameLogic {
     fun init()
 
+    /** Called on the main thread before each frame. */
     fun input(window: Window)
 
+    /**
+     * Called on the simulation thread each tick, so the state it shares
+     * with the main thread must be passed by a [Handoff][io.github.overrun.freeworld.util.Handoff].
+     *
+     * @param delta The seconds of a tick.
+     */
     fun update(delta: Float)
 
-    fun render()
+    /**
+     * Called on the main thread each frame.
+     *
+     * @param alpha The part of a tick passed since the last tick, in `0` to `1`.
+     */
+    fun render(alpha: Float)
 }
\ No newline at end of file
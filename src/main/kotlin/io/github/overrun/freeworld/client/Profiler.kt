@@ -0,0 +1,280 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client
+
+import io.github.overrun.freeworld.FreeWorld.Companion.logger
+import io.github.overrun.freeworld.client.gl.LwjglBackend
+import io.github.overrun.freeworld.client.gl.backend
+import org.lwjgl.opengl.GL
+import org.lwjgl.opengl.GL33.*
+import java.io.File
+import java.text.SimpleDateFormat
+import java.util.*
+
+/**
+ * Times the named sections of the frames on the main thread, on the CPU
+ * and, with GL 3.3 or `ARB_timer_query`, on the GPU.
+ *
+ * The sections are [pushed][push] and [popped][pop] in a tree. Their times
+ * in a frame are kept for the last [WINDOW] frames, read as [percentiles][percentile]
+ * or [reported][report], and [dumped][dump] by F9. All the arrays are
+ * allocated up front, so the timing doesn't allocate.
+ *
+ * The GPU time is taken by a `GL_TIMESTAMP` query at each push and pop,
+ * since the `GL_TIME_ELAPSED` queries can't be nested. The results are read
+ * [QUERY_FRAMES] frames later, or dropped if not ready yet.
+ *
+ * Enable by `-Dfreeworld.profiler=true`.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+object Profiler {
+    @JvmStatic
+    val ENABLED = System.getProperty("freeworld.profiler", "false").toBoolean()
+    /** The frames kept for the percentiles. */
+    const val WINDOW = 256
+    private const val MAX_SECTIONS = 64
+    private const val MAX_DEPTH = 16
+    private const val QUERY_FRAMES = 4
+    private const val PAIRS_PER_FRAME = 64
+
+    private val names = arrayOfNulls<String>(MAX_SECTIONS)
+    private val parents = IntArray(MAX_SECTIONS)
+    private var sectionCount = 0
+    private val stack = IntArray(MAX_DEPTH)
+    private val starts = LongArray(MAX_DEPTH)
+    private var depth = 0
+    private val cpuFrame = LongArray(MAX_SECTIONS)
+    private val ran = BooleanArray(MAX_SECTIONS)
+    private val cpuSamples = LongArray(MAX_SECTIONS * WINDOW)
+    private val cpuCounts = IntArray(MAX_SECTIONS)
+    private val gpuFrame = LongArray(MAX_SECTIONS)
+    private val gpuRan = BooleanArray(MAX_SECTIONS)
+    private val gpuSamples = LongArray(MAX_SECTIONS * WINDOW)
+    private val gpuCounts = IntArray(MAX_SECTIONS)
+    private val sorted = LongArray(WINDOW)
+
+    private var gpu = false
+    /** The start and end query of each pair, [PAIRS_PER_FRAME] pairs for each frame. */
+    private val queries = IntArray(QUERY_FRAMES * PAIRS_PER_FRAME * 2)
+    private val pairSections = IntArray(QUERY_FRAMES * PAIRS_PER_FRAME)
+    private val pairCounts = IntArray(QUERY_FRAMES)
+    private val pairStack = IntArray(MAX_DEPTH)
+    private var frame = 0
+
+    /** Create the queries, after the GL context. */
+    @JvmStatic
+    fun init() {
+        if (!ENABLED) return
+        gpu = backend is LwjglBackend && GL.getCapabilities().glQueryCounter != 0L
+        if (gpu) glGenQueries(queries)
+        logger.info("Profiler enabled, GPU timing ${if (gpu) "on" else "not supported"}")
+    }
+
+    private fun find(parent: Int, name: String): Int {
+        for (i in 0 until sectionCount) {
+            if (parents[i] == parent && names[i] == name) return i
+        }
+        check(sectionCount < MAX_SECTIONS) { "Too many profiler sections" }
+        names[sectionCount] = name
+        parents[sectionCount] = parent
+        return sectionCount++
+    }
+
+    @JvmStatic
+    fun push(name: String) {
+        if (!ENABLED) return
+        check(depth < MAX_DEPTH) { "Profiler sections nested too deep" }
+        val section = find(if (depth == 0) -1 else stack[depth - 1], name)
+        stack[depth] = section
+        if (gpu) {
+            val slot = frame % QUERY_FRAMES
+            val pair = pairCounts[slot]
+            if (pair < PAIRS_PER_FRAME) {
+                val index = slot * PAIRS_PER_FRAME + pair
+                pairSections[index] = section
+                glQueryCounter(queries[index * 2], GL_TIMESTAMP)
+                pairCounts[slot] = pair + 1
+                pairStack[depth] = index
+            } else {
+                pairStack[depth] = -1
+            }
+        }
+        starts[depth] = System.nanoTime()
+        ++depth
+    }
+
+    @JvmStatic
+    fun pop() {
+        if (!ENABLED) return
+        check(depth > 0) { "No profiler section to pop" }
+        --depth
+        val section = stack[depth]
+        cpuFrame[section] += System.nanoTime() - starts[depth]
+        ran[section] = true
+        if (gpu && pairStack[depth] >= 0) {
+            glQueryCounter(queries[pairStack[depth] * 2 + 1], GL_TIMESTAMP)
+        }
+    }
+
+    inline fun <T> section(name: String, action: () -> T): T {
+        push(name)
+        try {
+            return action()
+        } finally {
+            pop()
+        }
+    }
+
+    /**
+     * Start a frame, reading the GPU times of the frame [QUERY_FRAMES] ago.
+     */
+    @JvmStatic
+    fun beginFrame() {
+        if (!ENABLED || !gpu) return
+        val slot = frame % QUERY_FRAMES
+        val pairs = pairCounts[slot]
+        pairCounts[slot] = 0
+        if (pairs == 0) return
+        val base = slot * PAIRS_PER_FRAME
+        // The queries finish in order, so the last one being ready means all are
+        if (glGetQueryObjecti(queries[(base + pairs - 1) * 2 + 1], GL_QUERY_RESULT_AVAILABLE) == GL_FALSE) return
+        for (i in base until base + pairs) {
+            val section = pairSections[i]
+            gpuFrame[section] += glGetQueryObjectui64(queries[i * 2 + 1], GL_QUERY_RESULT) -
+                    glGetQueryObjectui64(queries[i * 2], GL_QUERY_RESULT)
+            gpuRan[section] = true
+        }
+        for (i in 0 until sectionCount) {
+            if (gpuRan[i]) {
+                gpuSamples[i * WINDOW + gpuCounts[i] % WINDOW] = gpuFrame[i]
+                ++gpuCounts[i]
+                gpuFrame[i] = 0L
+                gpuRan[i] = false
+            }
+        }
+    }
+
+    @JvmStatic
+    fun endFrame() {
+        if (!ENABLED) return
+        check(depth == 0) { "Profiler section ${names[stack[depth - 1]]} not popped" }
+        for (i in 0 until sectionCount) {
+            if (ran[i]) {
+                cpuSamples[i * WINDOW + cpuCounts[i] % WINDOW] = cpuFrame[i]
+                ++cpuCounts[i]
+                cpuFrame[i] = 0L
+                ran[i] = false
+            }
+        }
+        ++frame
+    }
+
+    /**
+     * Get the section by its path from the root, such as `frame/render/world`.
+     *
+     * @return The section, or `-1` if never pushed.
+     */
+    @JvmStatic
+    fun getSection(path: String): Int {
+        var section = -1
+        for (name in path.split('/')) {
+            section = (0 until sectionCount).firstOrNull { parents[it] == section && names[it] == name } ?: return -1
+        }
+        return section
+    }
+
+    /**
+     * Get a percentile of the times of a section in the last [WINDOW] frames
+     * it ran in.
+     *
+     * @param gpu Whether to get the GPU time instead of the CPU time.
+     * @return The nanoseconds, or `-1` if no frames.
+     */
+    @JvmStatic
+    fun percentile(section: Int, percentile: Float, gpu: Boolean = false): Long {
+        val count = minOf(if (gpu) gpuCounts[section] else cpuCounts[section], WINDOW)
+        if (count == 0) return -1L
+        System.arraycopy(if (gpu) gpuSamples else cpuSamples, section * WINDOW, sorted, 0, count)
+        Arrays.sort(sorted, 0, count)
+        return sorted[minOf((count * percentile / 100f).toInt(), count - 1)]
+    }
+
+    /**
+     * The percentiles of all the sections, in milliseconds, as a tree.
+     */
+    @JvmStatic
+    fun report(): String {
+        val sb = StringBuilder("section: cpu p50/p95/p99, gpu p50/p95/p99 (ms, last $WINDOW frames)\n")
+        report(sb, -1, 0)
+        return sb.toString()
+    }
+
+    private fun report(sb: StringBuilder, parent: Int, indent: Int) {
+        for (i in 0 until sectionCount) {
+            if (parents[i] != parent) continue
+            for (j in 0 until indent) sb.append("  ")
+            sb.append(names[i]).append(": ")
+            appendPercentiles(sb, i, false)
+            if (gpu) {
+                sb.append(", ")
+                appendPercentiles(sb, i, true)
+            }
+            sb.append('\n')
+            report(sb, i, indent + 1)
+        }
+    }
+
+    private fun appendPercentiles(sb: StringBuilder, section: Int, gpu: Boolean) {
+        if ((if (gpu) gpuCounts else cpuCounts)[section] == 0) {
+            sb.append("n/a")
+            return
+        }
+        sb.append(String.format(
+            "%.3f/%.3f/%.3f",
+            percentile(section, 50f, gpu) / 1e6,
+            percentile(section, 95f, gpu) / 1e6,
+            percentile(section, 99f, gpu) / 1e6
+        ))
+    }
+
+    /**
+     * Write the [report] to `profiler-<time>.txt` in the working directory.
+     */
+    @JvmStatic
+    fun dump() {
+        if (!ENABLED) return
+        val file = File("profiler-${SimpleDateFormat("yyyyMMdd-HHmmss").format(Date())}.txt")
+        file.writeText(report())
+        logger.info("Dumped the profiler to ${file.absolutePath}")
+    }
+
+    @JvmStatic
+    fun close() {
+        if (gpu) glDeleteQueries(queries)
+        gpu = false
+    }
+}
@@ -24,6 +24,7 @@
 
 package io.github.overrun.freeworld.client
 
+import io.github.overrun.freeworld.client.gl.backend
 import io.github.overrun.freeworld.util.Images
 import org.lwjgl.opengl.GL12.*
 import java.io.Closeable
@@ -32,12 +33,7 @@ import java.io.Closeable
  * @author squid233
  * @since 2021/03/23
  */
-class Texture
-    @JvmOverloads constructor(
-        name: String,
-        gl: Boolean = true,
-        toRgba: Boolean = false
-    ) : Closeable {
+class Texture private constructor() : Closeable {
     companion object {
         @JvmStatic
         fun load(
@@ -46,8 +42,6 @@ class Texture
             gl: Boolean = true,
             toRgba: Boolean = false
         ): Int {
-            var id = 0
-            if (gl) id = glGenTextures()
             var w: Int
             var h: Int
             var data: IntArray
@@ -77,11 +71,24 @@ class Texture
                     data[i] = a.shl(24).or(b.shl(16)).or(g.shl(8)).or(r)
                 }
             }
+            return load(texture, w, h, data, gl, toRgba)
+        }
+
+        private fun load(
+            texture: Texture,
+            w: Int,
+            h: Int,
+            data: IntArray,
+            gl: Boolean,
+            toRgba: Boolean
+        ): Int {
+            var id = 0
             if (gl) {
-                glBindTexture(GL_TEXTURE_2D, id)
-                glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST)
-                glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST)
-                glTexImage2D(
+                id = backend.glGenTextures()
+                GlStateManager.bindTexture(id)
+                backend.glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST)
+                backend.glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST)
+                backend.glTexImage2D(
                     GL_TEXTURE_2D,
                     0,
                     GL_RGBA,
@@ -107,10 +114,28 @@ class Texture
     var h = 0
     lateinit var pixels: IntArray
 
-    init {
+    @JvmOverloads
+    constructor(
+        name: String,
+        gl: Boolean = true,
+        toRgba: Boolean = false
+    ) : this() {
         load(name, this, gl, toRgba)
     }
 
+    /**
+     * Create a texture from the pixels in `0xAARRGGBB`.
+     */
+    @JvmOverloads
+    constructor(
+        w: Int,
+        h: Int,
+        pixels: IntArray,
+        gl: Boolean = true
+    ) : this() {
+        load(this, w, h, pixels, gl, false)
+    }
+
     override fun close() =
-        glDeleteTextures(id)
-}
\ No newline at end of file
+        GlStateManager.deleteTexture(id)
+}
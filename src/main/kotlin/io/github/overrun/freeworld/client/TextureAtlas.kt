@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client
+
+/**
+ * Stitches images into one texture.
+ *
+ * The images are packed into shelves, from the highest to the lowest.
+ * Each of them is surrounded by [padding] pixels copied from its edges,
+ * so sampling near the edges never reads the neighbors.
+ *
+ * @author squid233
+ * @since 2021/05/10
+ */
+class TextureAtlas(private val padding: Int = 2) {
+    /**
+     * A rectangle in the atlas. The UVs are valid after [stitch].
+     */
+    class Sprite internal constructor(
+        val name: String,
+        val width: Int,
+        val height: Int,
+        internal val pixels: IntArray,
+        internal val srcX: Int,
+        internal val srcY: Int,
+        internal val scan: Int
+    ) {
+        /** The x of the sprite in the atlas, excluding the padding. */
+        var x = 0
+            internal set
+        var y = 0
+            internal set
+        var u0 = 0f
+            private set
+        var v0 = 0f
+            private set
+        var u1 = 0f
+            private set
+        var v1 = 0f
+            private set
+
+        internal fun updateUv(atlasWidth: Int, atlasHeight: Int) {
+            u0 = x.toFloat() / atlasWidth
+            v0 = y.toFloat() / atlasHeight
+            u1 = (x + width).toFloat() / atlasWidth
+            v1 = (y + height).toFloat() / atlasHeight
+        }
+    }
+
+    private val sprites = LinkedHashMap<String, Sprite>()
+    var width = 0
+        private set
+    var height = 0
+        private set
+
+    val size get() = sprites.size
+
+    /**
+     * Add a part of an image, or get the sprite added with the same name.
+     *
+     * @param pixels The pixels of the image, in `0xAARRGGBB`.
+     * @param scan   The width of the image.
+     */
+    fun add(
+        name: String,
+        pixels: IntArray,
+        scan: Int,
+        srcX: Int,
+        srcY: Int,
+        width: Int,
+        height: Int
+    ): Sprite = sprites.getOrPut(name) {
+        Sprite(name, width, height, pixels, srcX, srcY, scan)
+    }
+
+    operator fun get(name: String) = sprites[name]
+
+    /**
+     * Pack the sprites and create the texture.
+     *
+     * @param gl Whether to upload the texture.
+     */
+    @JvmOverloads
+    fun stitch(gl: Boolean = true): Texture {
+        val sorted = sprites.values.sortedWith(
+            compareByDescending<Sprite> { it.height }.thenByDescending { it.width }
+        )
+        var area = 0
+        for (sprite in sorted)
+            area += (sprite.width + padding * 2) * (sprite.height + padding * 2)
+        var w = 16
+        var h = 16
+        while (w * h < area) {
+            if (w <= h) w *= 2 else h *= 2
+        }
+        while (!pack(sorted, w, h)) {
+            if (w <= h) w *= 2 else h *= 2
+        }
+        width = w
+        height = h
+        val pixels = IntArray(w * h)
+        for (sprite in sorted) {
+            copy(sprite, pixels, w)
+            sprite.updateUv(w, h)
+        }
+        return Texture(w, h, pixels, gl)
+    }
+
+    private fun pack(sorted: List<Sprite>, w: Int, h: Int): Boolean {
+        var x = 0
+        var y = 0
+        var shelfHeight = 0
+        for (sprite in sorted) {
+            val pw = sprite.width + padding * 2
+            val ph = sprite.height + padding * 2
+            if (x + pw > w) {
+                x = 0
+                y += shelfHeight
+                shelfHeight = 0
+            }
+            if (x + pw > w || y + ph > h) return false
+            sprite.x = x + padding
+            sprite.y = y + padding
+            x += pw
+            if (ph > shelfHeight) shelfHeight = ph
+        }
+        return true
+    }
+
+    private fun copy(sprite: Sprite, dst: IntArray, dstScan: Int) {
+        for (py in -padding until sprite.height + padding) {
+            val sy = sprite.srcY + py.coerceIn(0, sprite.height - 1)
+            for (px in -padding until sprite.width + padding) {
+                val sx = sprite.srcX + px.coerceIn(0, sprite.width - 1)
+                dst[(sprite.y + py) * dstScan + sprite.x + px] = sprite.pixels[sy * sprite.scan + sx]
+            }
+        }
+    }
+}
@@ -41,6 +41,7 @@ import java.io.Closeable
 import kotlin.math.floor
 
 /**
+ * @param coreProfile Create an OpenGL 3.3 core profile context instead of 2.x.
  * @author squid233
  * @since 2021/03/18
  */
@@ -48,7 +49,8 @@ class Window(
     val title: String,
     width: Int,
     height: Int,
-    val vSync: Boolean = true
+    val vSync: Boolean = true,
+    val coreProfile: Boolean = false
 ) : Closeable {
     private var handle = 0L
     var resized = false
@@ -73,7 +75,14 @@ class Window(
         }
         check(glfwInit()) { "Unable to initialize GLFW" }
         glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE)
-        glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 2)
+        if (coreProfile) {
+            glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 3)
+            glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 3)
+            glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE)
+            glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GLFW_TRUE)
+        } else {
+            glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 2)
+        }
         handle = glfwCreateWindow(width, height, title, NULL, NULL)
         if (handle == NULL) throw NullPointerException("Failed to create the window")
         GLFWImage.malloc(1).use {
@@ -110,6 +119,12 @@ class Window(
                         else GLFW_CURSOR_NORMAL
                     )
                 }
+                if (key == GLFW_KEY_G) {
+                    FreeWorldClient.toggleGreedyMeshing()
+                }
+                if (key == GLFW_KEY_F9) {
+                    Profiler.dump()
+                }
                 if (key == GLFW_KEY_F11) {
                     if (fullscreen) {
                         Player.playing = false
@@ -177,9 +192,10 @@ class Window(
         glfwMakeContextCurrent(handle)
         glfwSwapInterval(if (vSync) 1 else 0)
         GL.createCapabilities()
+        GlStateManager.init(coreProfile)
         glClearColor(.4f, .6f, .9f, 1f)
-        glEnable(GL_DEPTH_TEST)
-        glDepthFunc(GL_LEQUAL)
+        enableDepthTest()
+        depthFunc(GL_LEQUAL)
         enableCullFace()
         cullFaceBack()
         enableBlend()
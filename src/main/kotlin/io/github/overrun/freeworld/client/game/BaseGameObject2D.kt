@@ -24,13 +24,11 @@
 
 package io.github.overrun.freeworld.client.game
 
-import io.github.overrun.freeworld.client.Mesh
-
 /**
  * @author squid233
  * @since 2021/04/03
  */
-open class BaseGameObject2D(override val mesh: Mesh?) : GameObject2D {
+open class BaseGameObject2D : GameObject2D {
     override var x = 0
     override var y = 0
 }
\ No newline at end of file
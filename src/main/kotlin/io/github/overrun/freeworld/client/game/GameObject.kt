@@ -24,20 +24,12 @@
 
 package io.github.overrun.freeworld.client.game
 
-import io.github.overrun.freeworld.client.Mesh
-
 /**
  * @author squid233
  * @since 2021/03/24
  */
 interface GameObject {
-    val mesh: Mesh?
-
     fun getPrevX(): Float
     fun getPrevY(): Float
     fun getPrevZ(): Float
-
-    fun render() {
-        mesh?.render()
-    }
 }
\ No newline at end of file
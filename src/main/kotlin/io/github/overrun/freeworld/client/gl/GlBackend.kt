@@ -0,0 +1,191 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.gl
+
+import java.nio.ByteBuffer
+import java.nio.FloatBuffer
+import java.nio.IntBuffer
+
+/**
+ * The GL calls of the [state manager][io.github.overrun.freeworld.client.GlStateManager],
+ * the programs, the textures, the meshes and the stream buffers, including the chunk
+ * meshes drawn one by one. The calls have the same names and arguments as in LWJGL.
+ *
+ * [LwjglBackend] calls GL. [NullBackend] and [RecordingBackend] need no
+ * context, for running the render code without a window. The multi-draw
+ * batch, the mapped stream buffers and the GPU timers call GL directly,
+ * and are not used with them.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+interface GlBackend {
+    // State
+
+    fun glUseProgram(program: Int)
+
+    fun glActiveTexture(texture: Int)
+
+    fun glBindTexture(target: Int, texture: Int)
+
+    fun glBindVertexArray(array: Int)
+
+    fun glBindBuffer(target: Int, buffer: Int)
+
+    fun glEnable(cap: Int)
+
+    fun glDisable(cap: Int)
+
+    fun glBlendFunc(sfactor: Int, dfactor: Int)
+
+    fun glCullFace(mode: Int)
+
+    fun glDepthFunc(func: Int)
+
+    fun glViewport(x: Int, y: Int, width: Int, height: Int)
+
+    fun glClear(mask: Int)
+
+    // Objects
+
+    fun glGenBuffers(): Int
+
+    fun glDeleteBuffers(buffer: Int)
+
+    fun glGenVertexArrays(): Int
+
+    fun glDeleteVertexArrays(array: Int)
+
+    fun glGenTextures(): Int
+
+    fun glDeleteTextures(texture: Int)
+
+    // Buffers
+
+    fun glBufferData(target: Int, size: Long, usage: Int)
+
+    fun glBufferData(target: Int, data: ByteBuffer, usage: Int)
+
+    fun glBufferData(target: Int, data: IntBuffer, usage: Int)
+
+    fun glBufferData(target: Int, data: FloatArray, usage: Int)
+
+    fun glBufferData(target: Int, data: IntArray, usage: Int)
+
+    fun glBufferSubData(target: Int, offset: Long, data: ByteBuffer)
+
+    fun glBufferSubData(target: Int, offset: Long, data: FloatBuffer)
+
+    fun glGetBufferSubData(target: Int, offset: Long, data: ByteBuffer)
+
+    /** Whether [glCopyBufferSubData] is supported, by GL 3.1 or `ARB_copy_buffer`. */
+    fun isCopyBufferSupported(): Boolean
+
+    fun glCopyBufferSubData(readTarget: Int, writeTarget: Int, readOffset: Long, writeOffset: Long, size: Long)
+
+    // Drawing
+
+    fun glDrawArrays(mode: Int, first: Int, count: Int)
+
+    fun glDrawElements(mode: Int, count: Int, type: Int, indices: Long)
+
+    fun glEnableVertexAttribArray(index: Int)
+
+    fun glDisableVertexAttribArray(index: Int)
+
+    fun glVertexAttribPointer(index: Int, size: Int, type: Int, normalized: Boolean, stride: Int, pointer: Long)
+
+    // Textures
+
+    fun glTexParameteri(target: Int, pname: Int, param: Int)
+
+    fun glTexImage2D(
+        target: Int,
+        level: Int,
+        internalformat: Int,
+        width: Int,
+        height: Int,
+        border: Int,
+        format: Int,
+        type: Int,
+        pixels: IntArray
+    )
+
+    // Programs
+
+    fun glCreateProgram(): Int
+
+    fun glDeleteProgram(program: Int)
+
+    fun glCreateShader(type: Int): Int
+
+    fun glDeleteShader(shader: Int)
+
+    fun glShaderSource(shader: Int, string: CharSequence)
+
+    fun glCompileShader(shader: Int)
+
+    fun glGetShaderi(shader: Int, pname: Int): Int
+
+    fun glGetShaderInfoLog(shader: Int): String
+
+    fun glAttachShader(program: Int, shader: Int)
+
+    fun glDetachShader(program: Int, shader: Int)
+
+    fun glLinkProgram(program: Int)
+
+    fun glValidateProgram(program: Int)
+
+    fun glGetProgrami(program: Int, pname: Int): Int
+
+    fun glGetProgramInfoLog(program: Int): String
+
+    fun glGetActiveUniform(program: Int, index: Int, size: IntBuffer, type: IntBuffer): String
+
+    fun glGetActiveAttrib(program: Int, index: Int, size: IntBuffer, type: IntBuffer): String
+
+    fun glGetUniformLocation(program: Int, name: CharSequence): Int
+
+    fun glGetAttribLocation(program: Int, name: CharSequence): Int
+
+    // Uniforms
+
+    fun glUniform1i(location: Int, v0: Int)
+
+    fun glUniform1f(location: Int, v0: Float)
+
+    fun glUniform3f(location: Int, v0: Float, v1: Float, v2: Float)
+
+    fun glUniform4f(location: Int, v0: Float, v1: Float, v2: Float, v3: Float)
+
+    fun glUniform4fv(location: Int, value: FloatArray)
+
+    fun glUniformMatrix4fv(location: Int, transpose: Boolean, value: FloatArray)
+}
+
+/** The backend the GL calls go to, see [GlStateManager.getBackend][io.github.overrun.freeworld.client.GlStateManager.getBackend]. */
+val backend: GlBackend
+    get() = io.github.overrun.freeworld.client.GlStateManager.getBackend()
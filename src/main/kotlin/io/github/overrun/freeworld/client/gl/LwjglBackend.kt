@@ -0,0 +1,239 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package io.github.overrun.freeworld.client.gl
+
+import org.lwjgl.opengl.*
+import java.nio.ByteBuffer
+import java.nio.FloatBuffer
+import java.nio.IntBuffer
+
+/**
+ * Calls GL through LWJGL, on the thread with the current context.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+object LwjglBackend : GlBackend {
+    override fun glUseProgram(program: Int) =
+        GL20.glUseProgram(program)
+
+    override fun glActiveTexture(texture: Int) =
+        GL13.glActiveTexture(texture)
+
+    override fun glBindTexture(target: Int, texture: Int) =
+        GL11.glBindTexture(target, texture)
+
+    override fun glBindVertexArray(array: Int) =
+        GL30.glBindVertexArray(array)
+
+    override fun glBindBuffer(target: Int, buffer: Int) =
+        GL15.glBindBuffer(target, buffer)
+
+    override fun glEnable(cap: Int) =
+        GL11.glEnable(cap)
+
+    override fun glDisable(cap: Int) =
+        GL11.glDisable(cap)
+
+    override fun glBlendFunc(sfactor: Int, dfactor: Int) =
+        GL11.glBlendFunc(sfactor, dfactor)
+
+    override fun glCullFace(mode: Int) =
+        GL11.glCullFace(mode)
+
+    override fun glDepthFunc(func: Int) =
+        GL11.glDepthFunc(func)
+
+    override fun glViewport(x: Int, y: Int, width: Int, height: Int) =
+        GL11.glViewport(x, y, width, height)
+
+    override fun glClear(mask: Int) =
+        GL11.glClear(mask)
+
+    override fun glGenBuffers() =
+        GL15.glGenBuffers()
+
+    override fun glDeleteBuffers(buffer: Int) =
+        GL15.glDeleteBuffers(buffer)
+
+    override fun glGenVertexArrays() =
+        GL30.glGenVertexArrays()
+
+    override fun glDeleteVertexArrays(array: Int) =
+        GL30.glDeleteVertexArrays(array)
+
+    override fun glGenTextures() =
+        GL11.glGenTextures()
+
+    override fun glDeleteTextures(texture: Int) =
+        GL11.glDeleteTextures(texture)
+
+    override fun glBufferData(target: Int, size: Long, usage: Int) =
+        GL15.glBufferData(target, size, usage)
+
+    override fun glBufferData(target: Int, data: ByteBuffer, usage: Int) =
+        GL15.glBufferData(target, data, usage)
+
+    override fun glBufferData(target: Int, data: IntBuffer, usage: Int) =
+        GL15.glBufferData(target, data, usage)
+
+    override fun glBufferData(target: Int, data: FloatArray, usage: Int) =
+        GL15.glBufferData(target, data, usage)
+
+    override fun glBufferData(target: Int, data: IntArray, usage: Int) =
+        GL15.glBufferData(target, data, usage)
+
+    override fun glBufferSubData(target: Int, offset: Long, data: ByteBuffer) =
+        GL15.glBufferSubData(target, offset, data)
+
+    override fun glBufferSubData(target: Int, offset: Long, data: FloatBuffer) =
+        GL15.glBufferSubData(target, offset, data)
+
+    override fun glGetBufferSubData(target: Int, offset: Long, data: ByteBuffer) =
+        GL15.glGetBufferSubData(target, offset, data)
+
+    override fun isCopyBufferSupported() =
+        GL.getCapabilities().glCopyBufferSubData != 0L
+
+    override fun glCopyBufferSubData(
+        readTarget: Int,
+        writeTarget: Int,
+        readOffset: Long,
+        writeOffset: Long,
+        size: Long
+    ) =
+        GL31.glCopyBufferSubData(readTarget, writeTarget, readOffset, writeOffset, size)
+
+    override fun glDrawArrays(mode: Int, first: Int, count: Int) =
+        GL11.glDrawArrays(mode, first, count)
+
+    override fun glDrawElements(mode: Int, count: Int, type: Int, indices: Long) =
+        GL11.glDrawElements(mode, count, type, indices)
+
+    override fun glEnableVertexAttribArray(index: Int) =
+        GL20.glEnableVertexAttribArray(index)
+
+    override fun glDisableVertexAttribArray(index: Int) =
+        GL20.glDisableVertexAttribArray(index)
+
+    override fun glVertexAttribPointer(
+        index: Int,
+        size: Int,
+        type: Int,
+        normalized: Boolean,
+        stride: Int,
+        pointer: Long
+    ) =
+        GL20.glVertexAttribPointer(index, size, type, normalized, stride, pointer)
+
+    override fun glTexParameteri(target: Int, pname: Int, param: Int) =
+        GL11.glTexParameteri(target, pname, param)
+
+    override fun glTexImage2D(
+        target: Int,
+        level: Int,
+        internalformat: Int,
+        width: Int,
+        height: Int,
+        border: Int,
+        format: Int,
+        type: Int,
+        pixels: IntArray
+    ) =
+        GL11.glTexImage2D(target, level, internalformat, width, height, border, format, type, pixels)
+
+    override fun glCreateProgram() =
+        GL20.glCreateProgram()
+
+    override fun glDeleteProgram(program: Int) =
+        GL20.glDeleteProgram(program)
+
+    override fun glCreateShader(type: Int) =
+        GL20.glCreateShader(type)
+
+    override fun glDeleteShader(shader: Int) =
+        GL20.glDeleteShader(shader)
+
+    override fun glShaderSource(shader: Int, string: CharSequence) =
+        GL20.glShaderSource(shader, string)
+
+    override fun glCompileShader(shader: Int) =
+        GL20.glCompileShader(shader)
+
+    override fun glGetShaderi(shader: Int, pname: Int) =
+        GL20.glGetShaderi(shader, pname)
+
+    override fun glGetShaderInfoLog(shader: Int) =
+        GL20.glGetShaderInfoLog(shader)
+
+    override fun glAttachShader(program: Int, shader: Int) =
+        GL20.glAttachShader(program, shader)
+
+    override fun glDetachShader(program: Int, shader: Int) =
+        GL20.glDetachShader(program, shader)
+
+    override fun glLinkProgram(program: Int) =
+        GL20.glLinkProgram(program)
+
+    override fun glValidateProgram(program: Int) =
+        GL20.glValidateProgram(program)
+
+    override fun glGetProgrami(program: Int, pname: Int) =
+        GL20.glGetProgrami(program, pname)
+
+    override fun glGetProgramInfoLog(program: Int) =
+        GL20.glGetProgramInfoLog(program)
+
+    override fun glGetActiveUniform(program: Int, index: Int, size: IntBuffer, type: IntBuffer) =
+        GL20.glGetActiveUniform(program, index, size, type)
+
+    override fun glGetActiveAttrib(program: Int, index: Int, size: IntBuffer, type: IntBuffer) =
+        GL20.glGetActiveAttrib(program, index, size, type)
+
+    override fun glGetUniformLocation(program: Int, name: CharSequence) =
+        GL20.glGetUniformLocation(program, name)
+
+    override fun glGetAttribLocation(program: Int, name: CharSequence) =
+        GL20.glGetAttribLocation(program, name)
+
+    override fun glUniform1i(location: Int, v0: Int) =
+        GL20.glUniform1i(location, v0)
+
+    override fun glUniform1f(location: Int, v0: Float) =
+        GL20.glUniform1f(location, v0)
+
+    override fun glUniform3f(location: Int, v0: Float, v1: Float, v2: Float) =
+        GL20.glUniform3f(location, v0, v1, v2)
+
+    override fun glUniform4f(location: Int, v0: Float, v1: Float, v2: Float, v3: Float) =
+        GL20.glUniform4f(location, v0, v1, v2, v3)
+
+    override fun glUniform4fv(location: Int, value: FloatArray) =
+        GL20.glUniform4fv(location, value)
+
+    override fun glUniformMatrix4fv(location: Int, transpose: Boolean, value: FloatArray) =
+        GL20.glUniformMatrix4fv(location, transpose, value)
+}
@@ -0,0 +1,329 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.gl
+
+import org.lwjgl.opengl.GL20.*
+import java.nio.ByteBuffer
+import java.nio.FloatBuffer
+import java.nio.IntBuffer
+
+/**
+ * Runs no GL, but counts the [calls][callCount], the [draws][drawCalls]
+ * and the [bytes uploaded][uploadedBytes]. The names of the objects are
+ * counted up from 1.
+ *
+ * The shaders always compile and link. The uniforms and attributes of a
+ * program are taken from the `uniform`, `attribute` and vertex shader `in`
+ * declarations of its sources, so that they can be resolved.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+open class NullBackend : GlBackend {
+    private class Variable(val name: String, val type: Int, val size: Int)
+
+    private class Program {
+        val shaders = ArrayList<Int>()
+        val uniforms = ArrayList<Variable>()
+        val attributes = ArrayList<Variable>()
+    }
+
+    companion object {
+        private val UNIFORM = Regex("""\buniform\s+(\w+)\s+([^;]+);""")
+        private val ATTRIBUTE = Regex("""^\s*(?:attribute|in)\s+(\w+)\s+([^;]+);""", RegexOption.MULTILINE)
+        private val ARRAY = Regex("""(\w+)\s*\[\s*(\d+)\s*]""")
+
+        private fun typeOf(name: String) =
+            when (name) {
+                "int" -> GL_INT
+                "bool" -> GL_BOOL
+                "sampler2D" -> GL_SAMPLER_2D
+                "float" -> GL_FLOAT
+                "vec2" -> GL_FLOAT_VEC2
+                "vec3" -> GL_FLOAT_VEC3
+                "vec4" -> GL_FLOAT_VEC4
+                "mat4" -> GL_FLOAT_MAT4
+                else -> 0
+            }
+
+        private fun parse(regex: Regex, source: String, into: MutableList<Variable>) {
+            for (match in regex.findAll(source)) {
+                val type = typeOf(match.groupValues[1])
+                for (declarator in match.groupValues[2].split(',')) {
+                    val array = ARRAY.find(declarator)
+                    val variable = if (array != null) {
+                        Variable(array.groupValues[1], type, array.groupValues[2].toInt())
+                    } else {
+                        Variable(declarator.trim(), type, 1)
+                    }
+                    if (into.none { it.name == variable.name }) into.add(variable)
+                }
+            }
+        }
+    }
+
+    private var nextName = 1
+    private val shaderTypes = HashMap<Int, Int>()
+    private val shaderSources = HashMap<Int, String>()
+    private val programs = HashMap<Int, Program>()
+
+    /** The GL calls, draws included. */
+    var callCount = 0L
+        private set
+    var drawCalls = 0L
+        private set
+    /** The bytes passed to the buffers and textures. */
+    var uploadedBytes = 0L
+        private set
+
+    fun reset() {
+        callCount = 0L
+        drawCalls = 0L
+        uploadedBytes = 0L
+    }
+
+    private fun call() {
+        ++callCount
+    }
+
+    private fun upload(bytes: Long) {
+        ++callCount
+        uploadedBytes += bytes
+    }
+
+    private fun name(): Int {
+        ++callCount
+        return nextName++
+    }
+
+    override fun glUseProgram(program: Int) = call()
+
+    override fun glActiveTexture(texture: Int) = call()
+
+    override fun glBindTexture(target: Int, texture: Int) = call()
+
+    override fun glBindVertexArray(array: Int) = call()
+
+    override fun glBindBuffer(target: Int, buffer: Int) = call()
+
+    override fun glEnable(cap: Int) = call()
+
+    override fun glDisable(cap: Int) = call()
+
+    override fun glBlendFunc(sfactor: Int, dfactor: Int) = call()
+
+    override fun glCullFace(mode: Int) = call()
+
+    override fun glDepthFunc(func: Int) = call()
+
+    override fun glViewport(x: Int, y: Int, width: Int, height: Int) = call()
+
+    override fun glClear(mask: Int) = call()
+
+    override fun glGenBuffers() = name()
+
+    override fun glDeleteBuffers(buffer: Int) = call()
+
+    override fun glGenVertexArrays() = name()
+
+    override fun glDeleteVertexArrays(array: Int) = call()
+
+    override fun glGenTextures() = name()
+
+    override fun glDeleteTextures(texture: Int) = call()
+
+    override fun glBufferData(target: Int, size: Long, usage: Int) = call()
+
+    override fun glBufferData(target: Int, data: ByteBuffer, usage: Int) =
+        upload(data.remaining().toLong())
+
+    override fun glBufferData(target: Int, data: IntBuffer, usage: Int) =
+        upload(data.remaining() * 4L)
+
+    override fun glBufferData(target: Int, data: FloatArray, usage: Int) =
+        upload(data.size * 4L)
+
+    override fun glBufferData(target: Int, data: IntArray, usage: Int) =
+        upload(data.size * 4L)
+
+    override fun glBufferSubData(target: Int, offset: Long, data: ByteBuffer) =
+        upload(data.remaining().toLong())
+
+    override fun glBufferSubData(target: Int, offset: Long, data: FloatBuffer) =
+        upload(data.remaining() * 4L)
+
+    override fun glGetBufferSubData(target: Int, offset: Long, data: ByteBuffer) = call()
+
+    override fun isCopyBufferSupported() = true
+
+    override fun glCopyBufferSubData(readTarget: Int, writeTarget: Int, readOffset: Long, writeOffset: Long, size: Long) =
+        call()
+
+    override fun glDrawArrays(mode: Int, first: Int, count: Int) {
+        ++callCount
+        ++drawCalls
+    }
+
+    override fun glDrawElements(mode: Int, count: Int, type: Int, indices: Long) {
+        ++callCount
+        ++drawCalls
+    }
+
+    override fun glEnableVertexAttribArray(index: Int) = call()
+
+    override fun glDisableVertexAttribArray(index: Int) = call()
+
+    override fun glVertexAttribPointer(index: Int, size: Int, type: Int, normalized: Boolean, stride: Int, pointer: Long) =
+        call()
+
+    override fun glTexParameteri(target: Int, pname: Int, param: Int) = call()
+
+    override fun glTexImage2D(
+        target: Int,
+        level: Int,
+        internalformat: Int,
+        width: Int,
+        height: Int,
+        border: Int,
+        format: Int,
+        type: Int,
+        pixels: IntArray
+    ) = upload(pixels.size * 4L)
+
+    override fun glCreateProgram(): Int {
+        val name = name()
+        programs[name] = Program()
+        return name
+    }
+
+    override fun glDeleteProgram(program: Int) {
+        call()
+        programs.remove(program)
+    }
+
+    override fun glCreateShader(type: Int): Int {
+        val name = name()
+        shaderTypes[name] = type
+        return name
+    }
+
+    override fun glDeleteShader(shader: Int) {
+        call()
+        shaderTypes.remove(shader)
+        shaderSources.remove(shader)
+    }
+
+    override fun glShaderSource(shader: Int, string: CharSequence) {
+        call()
+        shaderSources[shader] = string.toString()
+    }
+
+    override fun glCompileShader(shader: Int) = call()
+
+    override fun glGetShaderi(shader: Int, pname: Int): Int {
+        call()
+        return if (pname == GL_COMPILE_STATUS) GL_TRUE else 0
+    }
+
+    override fun glGetShaderInfoLog(shader: Int): String {
+        call()
+        return ""
+    }
+
+    override fun glAttachShader(program: Int, shader: Int) {
+        call()
+        programs[program]?.shaders?.add(shader)
+    }
+
+    override fun glDetachShader(program: Int, shader: Int) {
+        call()
+        programs[program]?.shaders?.remove(shader)
+    }
+
+    override fun glLinkProgram(program: Int) {
+        call()
+        val p = programs[program] ?: return
+        p.uniforms.clear()
+        p.attributes.clear()
+        for (shader in p.shaders) {
+            val source = shaderSources[shader] ?: continue
+            parse(UNIFORM, source, p.uniforms)
+            if (shaderTypes[shader] == GL_VERTEX_SHADER) parse(ATTRIBUTE, source, p.attributes)
+        }
+    }
+
+    override fun glValidateProgram(program: Int) = call()
+
+    override fun glGetProgrami(program: Int, pname: Int): Int {
+        call()
+        return when (pname) {
+            GL_LINK_STATUS, GL_VALIDATE_STATUS -> GL_TRUE
+            GL_ACTIVE_UNIFORMS -> programs[program]?.uniforms?.size ?: 0
+            GL_ACTIVE_ATTRIBUTES -> programs[program]?.attributes?.size ?: 0
+            else -> 0
+        }
+    }
+
+    override fun glGetProgramInfoLog(program: Int): String {
+        call()
+        return ""
+    }
+
+    private fun getActive(variables: List<Variable>, index: Int, size: IntBuffer, type: IntBuffer): String {
+        call()
+        val variable = variables[index]
+        size.put(size.position(), variable.size)
+        type.put(type.position(), variable.type)
+        return if (variable.size > 1) "${variable.name}[0]" else variable.name
+    }
+
+    override fun glGetActiveUniform(program: Int, index: Int, size: IntBuffer, type: IntBuffer) =
+        getActive(programs.getValue(program).uniforms, index, size, type)
+
+    override fun glGetActiveAttrib(program: Int, index: Int, size: IntBuffer, type: IntBuffer) =
+        getActive(programs.getValue(program).attributes, index, size, type)
+
+    override fun glGetUniformLocation(program: Int, name: CharSequence): Int {
+        call()
+        return programs[program]?.uniforms?.indexOfFirst { it.name == name.toString() } ?: -1
+    }
+
+    override fun glGetAttribLocation(program: Int, name: CharSequence): Int {
+        call()
+        return programs[program]?.attributes?.indexOfFirst { it.name == name.toString() } ?: -1
+    }
+
+    override fun glUniform1i(location: Int, v0: Int) = call()
+
+    override fun glUniform1f(location: Int, v0: Float) = call()
+
+    override fun glUniform3f(location: Int, v0: Float, v1: Float, v2: Float) = call()
+
+    override fun glUniform4f(location: Int, v0: Float, v1: Float, v2: Float, v3: Float) = call()
+
+    override fun glUniform4fv(location: Int, value: FloatArray) = call()
+
+    override fun glUniformMatrix4fv(location: Int, transpose: Boolean, value: FloatArray) = call()
+}
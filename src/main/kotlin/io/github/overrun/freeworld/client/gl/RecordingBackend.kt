@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.gl
+
+import java.lang.reflect.InvocationTargetException
+import java.lang.reflect.Proxy
+import java.nio.Buffer
+import java.nio.ByteBuffer
+import java.nio.FloatBuffer
+import java.nio.IntBuffer
+
+/**
+ * Records the [commands] before passing the calls to another backend,
+ * a [NullBackend] by default. The data of the buffers and arrays is copied,
+ * so a command keeps what was uploaded.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+class RecordingBackend private constructor(
+    private val recorded: MutableList<Command>,
+    val delegate: GlBackend
+) : GlBackend by record(recorded, delegate) {
+    /**
+     * A recorded call.
+     *
+     * @param name The name of the GL function.
+     * @param args The arguments, with the buffers copied to arrays.
+     */
+    class Command(val name: String, val args: List<Any?>) {
+        override fun toString() =
+            args.joinToString(", ", "$name(", ")") {
+                when (it) {
+                    is ByteArray -> "byte[${it.size}]"
+                    is IntArray -> "int[${it.size}]"
+                    is FloatArray -> "float[${it.size}]"
+                    else -> it.toString()
+                }
+            }
+    }
+
+    @JvmOverloads
+    constructor(delegate: GlBackend = NullBackend()) : this(ArrayList(), delegate)
+
+    val commands: List<Command> get() = recorded
+
+    /** Get the recorded commands calling the function. */
+    fun commands(name: String) =
+        recorded.filter { it.name == name }
+
+    fun clear() =
+        recorded.clear()
+}
+
+private fun copy(arg: Any?): Any? =
+    when (arg) {
+        is Buffer -> {
+            // Copy without moving the position of the buffer
+            when (arg) {
+                is ByteBuffer -> ByteArray(arg.remaining()).also { arg.duplicate().get(it) }
+                is IntBuffer -> IntArray(arg.remaining()).also { arg.duplicate().get(it) }
+                is FloatBuffer -> FloatArray(arg.remaining()).also { arg.duplicate().get(it) }
+                else -> arg
+            }
+        }
+        is IntArray -> arg.clone()
+        is FloatArray -> arg.clone()
+        is CharSequence -> arg.toString()
+        else -> arg
+    }
+
+private fun record(commands: MutableList<RecordingBackend.Command>, delegate: GlBackend) =
+    Proxy.newProxyInstance(GlBackend::class.java.classLoader, arrayOf(GlBackend::class.java)) { _, method, args ->
+        val arguments = args ?: emptyArray()
+        if (method.declaringClass == GlBackend::class.java && method.name.startsWith("gl")) {
+            commands.add(RecordingBackend.Command(method.name, arguments.map(::copy)))
+        }
+        try {
+            method.invoke(delegate, *arguments)
+        } catch (e: InvocationTargetException) {
+            throw e.targetException
+        }
+    } as GlBackend
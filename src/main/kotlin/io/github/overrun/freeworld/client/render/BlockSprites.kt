@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render
+
+import io.github.overrun.freeworld.block.Block
+import io.github.overrun.freeworld.block.BlockRegistry
+import io.github.overrun.freeworld.block.Blocks.*
+import io.github.overrun.freeworld.client.Texture
+import io.github.overrun.freeworld.client.TextureAtlas
+
+/**
+ * The sprites of the faces of the registered blocks, in one [atlas][TextureAtlas].
+ *
+ * The texture of a block is split into the tiles of its faces, which are
+ * stitched separately. The tiles are indexed in the order they are
+ * stitched, the index fits the sprite table of the chunk shader.
+ *
+ * @author squid233
+ * @since 2021/05/10
+ */
+object BlockSprites {
+    /** The size of the sprite table in the chunk shader. */
+    const val MAX_SPRITES = 64
+
+    /** The `(u, v, width, height)` of the sprites, indexed by sprite index. */
+    val REGIONS = FloatArray(MAX_SPRITES * 4)
+    private var indices = IntArray(0)
+    private var texCoords = arrayOfNulls<FloatArray>(0)
+
+    private fun faceIndex(face: Int) = Integer.numberOfTrailingZeros(face)
+
+    /**
+     * Stitch the textures of the registered blocks.
+     *
+     * @param gl Whether to upload the texture.
+     * @return The texture of the atlas, owned by the caller.
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun stitch(gl: Boolean = true): Texture {
+        // Loading Blocks registers the blocks
+        val air = air
+        val atlas = TextureAtlas()
+        val sprites = ArrayList<TextureAtlas.Sprite>()
+        val spriteIds = IntArray(BlockRegistry.size * FACES.size)
+        BlockRegistry.forEach { block ->
+            if (block == air) return@forEach
+            val image = Texture("assets.freeworld/textures/block/${block.name}.png", false)
+            for (face in FACES) {
+                // The tex coords are (u0, v0), (u0, v1), (u1, v1), (u1, v0)
+                val uv = getTexCoords(face)
+                val x = (uv[0] * image.w).toInt()
+                val y = (uv[1] * image.h).toInt()
+                val w = ((uv[4] - uv[0]) * image.w).toInt()
+                val h = ((uv[5] - uv[1]) * image.h).toInt()
+                val sprite = atlas.add("${block.name}@$x,$y", image.pixels, image.w, x, y, w, h)
+                var index = sprites.indexOf(sprite)
+                if (index < 0) {
+                    index = sprites.size
+                    check(index < MAX_SPRITES) { "Too many block sprites, the limit is $MAX_SPRITES" }
+                    sprites += sprite
+                }
+                spriteIds[block.id * FACES.size + faceIndex(face)] = index
+            }
+        }
+        val texture = atlas.stitch(gl)
+        val faceTexCoords = arrayOfNulls<FloatArray>(sprites.size)
+        for (i in sprites.indices) {
+            val sprite = sprites[i]
+            REGIONS[i * 4] = sprite.u0
+            REGIONS[i * 4 + 1] = sprite.v0
+            REGIONS[i * 4 + 2] = sprite.u1 - sprite.u0
+            REGIONS[i * 4 + 3] = sprite.v1 - sprite.v0
+            faceTexCoords[i] = floatArrayOf(
+                sprite.u0, sprite.v0,
+                sprite.u0, sprite.v1,
+                sprite.u1, sprite.v1,
+                sprite.u1, sprite.v0
+            )
+        }
+        indices = spriteIds
+        texCoords = faceTexCoords
+        return texture
+    }
+
+    /**
+     * Get the sprite index of the face of the block.
+     */
+    @JvmStatic
+    operator fun get(block: Block, face: Int) =
+        indices[block.id * FACES.size + faceIndex(face)]
+
+    /**
+     * Get the tex coords of the face of the block in the atlas,
+     * in the same order as [getTexCoords].
+     */
+    @JvmStatic
+    fun getTexCoords(block: Block, face: Int) =
+        texCoords[get(block, face)]!!
+}
@@ -0,0 +1,148 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render
+
+import io.github.overrun.freeworld.client.GlProgram
+import io.github.overrun.freeworld.client.GlStateManager.bindBuffer
+import io.github.overrun.freeworld.client.GlStateManager.bindVertexArray
+import io.github.overrun.freeworld.client.GlStateManager.deleteBuffer
+import io.github.overrun.freeworld.client.GlStateManager.deleteVertexArray
+import io.github.overrun.freeworld.client.gl.LwjglBackend
+import io.github.overrun.freeworld.client.gl.backend
+import org.lwjgl.opengl.ARBMultiDrawIndirect.glMultiDrawElementsIndirect
+import org.lwjgl.opengl.GL
+import org.lwjgl.opengl.GL33.*
+import org.lwjgl.opengl.GL40.GL_DRAW_INDIRECT_BUFFER
+import org.lwjgl.system.MemoryUtil
+import java.io.Closeable
+import java.nio.ByteBuffer
+
+/**
+ * Draws the [chunk meshes][ChunkMesh] [added][add] in a frame
+ * with one `glMultiDrawElementsIndirect`.
+ *
+ * The offset of each section is an instanced attribute `in_chunkOffset`,
+ * picked by the base instance of its command. This needs GL 4.3, or the
+ * extensions `ARB_multi_draw_indirect` and `ARB_base_instance`, see [isSupported].
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+class ChunkBatch(
+    private val vertices: ChunkVertexBuffer,
+    private val indices: QuadIndexBuffer
+) : Closeable {
+    companion object {
+        /** `count, instanceCount, firstIndex, baseVertex, baseInstance` */
+        private const val COMMAND_SIZE = 20
+        private const val OFFSET_SIZE = 12
+
+        /**
+         * Whether the GL supports the batch. It calls GL directly, so the
+         * other backends than [LwjglBackend] draw the sections one by one.
+         */
+        @JvmStatic
+        fun isSupported(): Boolean {
+            if (backend !is LwjglBackend) return false
+            val caps = GL.getCapabilities()
+            return caps.OpenGL43 || (caps.GL_ARB_multi_draw_indirect && caps.GL_ARB_base_instance)
+        }
+    }
+
+    private val vao = glGenVertexArrays()
+    private val commandBuffer = glGenBuffers()
+    private val offsetBuffer = glGenBuffers()
+    private var commands = MemoryUtil.memAlloc(COMMAND_SIZE * 256)
+    private var offsets = MemoryUtil.memAlloc(OFFSET_SIZE * 256)
+    private var count = 0
+    private var vaoProgram: GlProgram? = null
+    private var vaoVertices = 0
+
+    /**
+     * Add a mesh to draw at the section origin.
+     */
+    fun add(mesh: ChunkMesh, x: Float, y: Float, z: Float) {
+        if (!commands.hasRemaining()) {
+            commands = grow(commands)
+            offsets = grow(offsets)
+        }
+        commands.putInt(mesh.quadCount * 6)
+            .putInt(1)
+            .putInt(0)
+            .putInt(mesh.baseVertex)
+            .putInt(count)
+        offsets.putFloat(x).putFloat(y).putFloat(z)
+        ++count
+    }
+
+    private fun grow(buffer: ByteBuffer): ByteBuffer {
+        val position = buffer.position()
+        val result = MemoryUtil.memRealloc(buffer, buffer.capacity() * 2)
+        result.position(position)
+        return result
+    }
+
+    /**
+     * Draw the added meshes, and clear them.
+     * The [block atlas][BlockSprites] must be bound.
+     */
+    fun draw(program: GlProgram) {
+        if (count == 0) return
+        commands.flip()
+        offsets.flip()
+        bindBuffer(GL_ARRAY_BUFFER, offsetBuffer)
+        // Orphan the storage of the last frame instead of waiting for it
+        glBufferData(GL_ARRAY_BUFFER, offsets, GL_STREAM_DRAW)
+        bindVertexArray(vao)
+        // Relocating the vertices replaces the buffer
+        if (vaoProgram !== program || vaoVertices != vertices.id) {
+            ChunkMesh.pointAttributes(program, vertices.id)
+            bindBuffer(GL_ARRAY_BUFFER, offsetBuffer)
+            val location = program.getAttribLocation("in_chunkOffset")
+            program.enableVertAttribArrPtr(location, 3, GL_FLOAT, false, OFFSET_SIZE)
+            glVertexAttribDivisor(location, 1)
+            bindBuffer(GL_ELEMENT_ARRAY_BUFFER, indices.id)
+            vaoProgram = program
+            vaoVertices = vertices.id
+        }
+        bindBuffer(GL_DRAW_INDIRECT_BUFFER, commandBuffer)
+        glBufferData(GL_DRAW_INDIRECT_BUFFER, commands, GL_STREAM_DRAW)
+        glMultiDrawElementsIndirect(GL_TRIANGLES, GL_UNSIGNED_INT, 0L, count, 0)
+        RenderStats.countDraw()
+        RenderStats.countStreamUpload(commands.remaining().toLong())
+        RenderStats.countStreamUpload(offsets.remaining().toLong())
+        commands.clear()
+        offsets.clear()
+        count = 0
+    }
+
+    override fun close() {
+        deleteVertexArray(vao)
+        deleteBuffer(commandBuffer)
+        deleteBuffer(offsetBuffer)
+        MemoryUtil.memFree(commands)
+        MemoryUtil.memFree(offsets)
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render
+
+import io.github.overrun.freeworld.FreeWorld.Companion.logger
+import io.github.overrun.freeworld.world.chunk.ChunkSection
+import java.io.Closeable
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.PriorityBlockingQueue
+
+/**
+ * Builds the meshes of sections on worker threads.
+ *
+ * The render thread [submits][submit] copies of the sections, and the
+ * nearest ones are built first. The workers put the CPU-side results to a
+ * bounded queue, which the render thread [polls][poll] and uploads within
+ * its budget. A [task][Task] cancelled before it started is dropped.
+ * A failed build is posted without a builder.
+ *
+ * @author squid233
+ * @since 2021/05/09
+ */
+class ChunkBuilder(
+    workerCount: Int,
+    completedCapacity: Int
+) : Closeable {
+    class Task(
+        val chunkX: Int,
+        val sectionY: Int,
+        val chunkZ: Int,
+        /** A copy of the section, which the workers can read safely. */
+        val section: ChunkSection,
+        val greedy: Boolean,
+        /** The squared distance to the player, smaller is built earlier. */
+        val distance: Float
+    ) {
+        @Volatile
+        var cancelled = false
+    }
+
+    class Result(
+        val task: Task,
+        /** The built mesh, or `null` if the build failed. */
+        val builder: MeshBuilder?,
+        /** The [connectivity][SectionConnectivity] of the section. */
+        val connectivity: Long
+    )
+
+    private val pending = PriorityBlockingQueue<Task>(64, compareBy { it.distance })
+    private val completed = ArrayBlockingQueue<Result>(completedCapacity)
+    private val freeBuilders = ConcurrentLinkedQueue<MeshBuilder>()
+    private val workers = Array(workerCount) { i ->
+        Thread(::work, "Chunk Builder #$i").apply {
+            isDaemon = true
+            start()
+        }
+    }
+
+    /** The count of tasks waiting for a worker. */
+    val pendingCount get() = pending.size
+
+    private fun work() {
+        val mesher = ChunkMesher { freeBuilders.poll() ?: MeshBuilder() }
+        try {
+            while (true) {
+                val task = pending.take()
+                if (task.cancelled) continue
+                mesher.greedy = task.greedy
+                val result = try {
+                    mesher.build(task.section)
+                    Result(task, mesher.takeBuilder(), mesher.connectivity)
+                } catch (e: RuntimeException) {
+                    logger.error("Failed to build section (${task.chunkX}, ${task.sectionY}, ${task.chunkZ})", e)
+                    // Still posted, so the render thread knows the task is over
+                    Result(task, null, SectionConnectivity.ALL)
+                }
+                completed.put(result)
+            }
+        } catch (e: InterruptedException) {
+            // Closed
+        }
+    }
+
+    fun submit(task: Task) {
+        pending.add(task)
+    }
+
+    /**
+     * Get a built result, or `null` if there isn't any.
+     * The builder should be [recycled][recycle] after uploading.
+     */
+    fun poll(): Result? = completed.poll()
+
+    fun recycle(result: Result) {
+        result.builder?.let { freeBuilders.add(it) }
+    }
+
+    override fun close() {
+        for (worker in workers) worker.interrupt()
+        for (worker in workers) worker.join()
+        pending.clear()
+        completed.clear()
+        freeBuilders.clear()
+    }
+}
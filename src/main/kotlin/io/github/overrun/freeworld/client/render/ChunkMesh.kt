@@ -0,0 +1,116 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render
+
+import io.github.overrun.freeworld.client.GlProgram
+import io.github.overrun.freeworld.client.GlStateManager
+import io.github.overrun.freeworld.client.GlStateManager.bindBuffer
+import io.github.overrun.freeworld.client.GlStateManager.bindVertexArray
+import io.github.overrun.freeworld.client.GlStateManager.deleteVertexArray
+import io.github.overrun.freeworld.client.gl.backend
+import io.github.overrun.freeworld.client.render.MeshBuilder.Companion.COLOR_OFFSET
+import io.github.overrun.freeworld.client.render.MeshBuilder.Companion.POSITION_OFFSET
+import io.github.overrun.freeworld.client.render.MeshBuilder.Companion.TILE_OFFSET
+import io.github.overrun.freeworld.client.render.MeshBuilder.Companion.VERTEX_SIZE
+import io.github.overrun.freeworld.util.BufferArena
+import org.lwjgl.opengl.GL15.*
+import java.io.Closeable
+
+/**
+ * The vertices of a baked [section][io.github.overrun.freeworld.world.chunk.ChunkSection],
+ * in the vertex format of [MeshBuilder], allocated in a [ChunkVertexBuffer].
+ *
+ * The data is uploaded by [upload] and drawn until uploaded again, either by
+ * [render] or by a [ChunkBatch]. In the [core profile][GlStateManager.isCoreProfile],
+ * the attributes and the [indices] are kept by a vertex array, pointed again
+ * when the vertices move in the buffer.
+ *
+ * @param indices The quad indices shared by the meshes.
+ * @param buffer  The buffer to allocate the vertices in.
+ * @author squid233
+ * @since 2021/05/08
+ */
+class ChunkMesh(
+    private val indices: QuadIndexBuffer,
+    private val buffer: ChunkVertexBuffer
+) : Closeable {
+    companion object {
+        /** Point the attributes of the vertex format to [vbo], starting at [offset]. */
+        internal fun pointAttributes(program: GlProgram, vbo: Int, offset: Long = 0L) {
+            bindBuffer(GL_ARRAY_BUFFER, vbo)
+            program.enableVertAttribArrPtr("in_position", 4, GL_SHORT, false, VERTEX_SIZE, offset + POSITION_OFFSET)
+            program.enableVertAttribArrPtr("in_tile", 2, GL_UNSIGNED_BYTE, false, VERTEX_SIZE, offset + TILE_OFFSET)
+            program.enableVertAttribArrPtr("in_color", 4, GL_UNSIGNED_BYTE, true, VERTEX_SIZE, offset + COLOR_OFFSET)
+        }
+    }
+
+    private var allocation: BufferArena.Allocation? = null
+    private var vao = 0
+    private var vaoProgram: GlProgram? = null
+    private var vaoBuffer = 0
+    private var vaoOffset = -1L
+    var quadCount = 0
+        private set
+
+    /** The index of the first vertex in the [buffer]. */
+    val baseVertex get() = (allocation!!.offset / VERTEX_SIZE).toInt()
+
+    fun upload(builder: MeshBuilder) {
+        quadCount = builder.quadCount
+        allocation?.let { buffer.free(it) }
+        val allocation = buffer.allocate(builder.buffer.limit().toLong())
+        buffer.upload(allocation, builder.buffer)
+        this.allocation = allocation
+    }
+
+    /**
+     * Draw the mesh. The [block atlas][BlockSprites] must be bound, and
+     * so must the [indices] unless in the core profile.
+     */
+    fun render(program: GlProgram) {
+        val offset = allocation!!.offset
+        if (GlStateManager.isCoreProfile()) {
+            if (vao == 0) vao = backend.glGenVertexArrays()
+            bindVertexArray(vao)
+            if (vaoProgram !== program || vaoBuffer != buffer.id || vaoOffset != offset) {
+                pointAttributes(program, buffer.id, offset)
+                bindBuffer(GL_ELEMENT_ARRAY_BUFFER, indices.id)
+                vaoProgram = program
+                vaoBuffer = buffer.id
+                vaoOffset = offset
+            }
+        } else {
+            pointAttributes(program, buffer.id, offset)
+        }
+        backend.glDrawElements(GL_TRIANGLES, quadCount * 6, GL_UNSIGNED_INT, 0)
+        RenderStats.countDraw()
+    }
+
+    override fun close() {
+        allocation?.let { buffer.free(it) }
+        allocation = null
+        if (vao != 0) deleteVertexArray(vao)
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render
+
+import io.github.overrun.freeworld.block.Block
+import io.github.overrun.freeworld.block.BlockRegistry
+import io.github.overrun.freeworld.block.Blocks.*
+import io.github.overrun.freeworld.world.chunk.ChunkSection
+import io.github.overrun.freeworld.world.chunk.ChunkSection.Companion.MASK
+import io.github.overrun.freeworld.world.chunk.ChunkSection.Companion.SHIFT
+import io.github.overrun.freeworld.world.chunk.ChunkSection.Companion.SIZE
+import io.github.overrun.freeworld.world.chunk.ChunkSection.Companion.VOLUME
+
+/**
+ * Bakes the [visible faces][ChunkSection.getVisibleFaces] of a [section][ChunkSection]
+ * into a [builder][MeshBuilder], relative to the section origin. The faces use
+ * the sprites of [BlockSprites], so all of them are drawn at once.
+ *
+ * With [greedy] meshing, the coplanar faces of the same kind of block are
+ * merged into rectangles, and the texture repeats across them.
+ *
+ * Each build also finds the [connectivity][SectionConnectivity] of the
+ * section, for the occlusion culling.
+ *
+ * The mesher only touches CPU memory, so each thread can use its own mesher.
+ * The builder is reused by the next call to [build], unless it is
+ * [taken][takeBuilder].
+ *
+ * @param newBuilder Creates the builder when there isn't any.
+ * @author squid233
+ * @since 2021/05/08
+ */
+class ChunkMesher @JvmOverloads constructor(
+    private val newBuilder: () -> MeshBuilder = { MeshBuilder() }
+) {
+    companion object {
+        /** The axis of the normal of [SIDES], 0 is x, 1 is y and 2 is z. */
+        private val NORMAL_AXES = intArrayOf(2, 0, 1, 0, 2, 1)
+        /** The overlay drawn upon [SIDES], or 0. */
+        private val OVERLAYS = intArrayOf(
+            FACE_OVERLAY_FRONT, FACE_OVERLAY_RIGHT, 0, FACE_OVERLAY_LEFT, FACE_OVERLAY_BACK, 0
+        )
+        /** The visible sides plus their overlays, indexed by the sides. */
+        private val WITH_OVERLAYS = IntArray(SIDE_MASK + 1) {
+            var result = it
+            for (side in SIDES.indices) {
+                if ((it and SIDES[side]) != 0) result = result or OVERLAYS[side]
+            }
+            result
+        }
+
+        /** The axis that the texture u goes along, indexed by face bit. */
+        private val U_AXES = IntArray(FACES.size)
+        /** The axis that the texture v goes along, indexed by face bit. */
+        private val V_AXES = IntArray(FACES.size)
+
+        init {
+            for (face in FACES) {
+                val vertices = getVertices(face)
+                U_AXES[faceIndex(face)] = differentAxis(vertices, 0, 3)
+                V_AXES[faceIndex(face)] = differentAxis(vertices, 0, 1)
+            }
+        }
+
+        private fun differentAxis(vertices: FloatArray, a: Int, b: Int): Int {
+            for (axis in 0 until 3) {
+                if (vertices[a * 3 + axis] != vertices[b * 3 + axis]) return axis
+            }
+            throw IllegalStateException("Degenerate face")
+        }
+
+        private fun faceIndex(face: Int) = Integer.numberOfTrailingZeros(face)
+    }
+
+    private var builder: MeshBuilder? = null
+    private val ids = IntArray(VOLUME)
+    private val faceMasks = IntArray(VOLUME)
+    private val plane = IntArray(SIZE * SIZE)
+    private val pos = IntArray(3)
+    private val extent = IntArray(3)
+    private val connectivityFinder = SectionConnectivity()
+
+    /** The [connectivity][SectionConnectivity] of the last built section. */
+    var connectivity = SectionConnectivity.ALL
+        private set
+
+    /** Merge the coplanar faces of the same kind of block. */
+    var greedy = false
+
+    /**
+     * Build the section.
+     *
+     * @param section The section to build.
+     * @return The builder, which is empty if no face is visible.
+     */
+    fun build(section: ChunkSection): MeshBuilder {
+        var builder = builder
+        if (builder == null) {
+            builder = newBuilder()
+            this.builder = builder
+        }
+        builder.clear()
+        for (y in 0 until SIZE) {
+            for (z in 0 until SIZE) {
+                for (x in 0 until SIZE) {
+                    val index = ChunkSection.getIndex(x, y, z)
+                    ids[index] = section.getBlockId(x, y, z)
+                    faceMasks[index] = WITH_OVERLAYS[section.getVisibleFaces(index)]
+                }
+            }
+        }
+        connectivity = if (section.isEmpty()) SectionConnectivity.ALL
+        else connectivityFinder.compute(ids)
+        if (greedy) buildGreedy(builder)
+        else buildSimple(builder)
+        return builder.end()
+    }
+
+    /**
+     * Take the builder of the last [build], so that the next build
+     * doesn't overwrite it.
+     */
+    fun takeBuilder(): MeshBuilder? {
+        val result = builder
+        builder = null
+        return result
+    }
+
+    private fun buildSimple(builder: MeshBuilder) {
+        extent.fill(1)
+        for (index in 0 until VOLUME) {
+            val faces = faceMasks[index]
+            if (faces == 0) continue
+            val block = BlockRegistry[ids[index]]
+            pos[0] = index and MASK
+            pos[1] = index shr (SHIFT * 2)
+            pos[2] = (index shr SHIFT) and MASK
+            for (face in FACES) {
+                if ((faces and face) != 0)
+                    emitFace(builder, block, face)
+            }
+        }
+    }
+
+    private fun buildGreedy(builder: MeshBuilder) {
+        for (side in SIDES.indices) {
+            val face = SIDES[side]
+            val overlay = OVERLAYS[side]
+            val n = NORMAL_AXES[side]
+            val a = (n + 1) % 3
+            val b = (n + 2) % 3
+            for (slice in 0 until SIZE) {
+                // Collect the visible faces of the slice
+                pos[n] = slice
+                for (j in 0 until SIZE) {
+                    pos[b] = j
+                    for (i in 0 until SIZE) {
+                        pos[a] = i
+                        val index = ChunkSection.getIndex(pos[0], pos[1], pos[2])
+                        plane[i + j * SIZE] =
+                            if ((faceMasks[index] and face) != 0) ids[index] else -1
+                    }
+                }
+                // Merge them into rectangles
+                for (j in 0 until SIZE) {
+                    var i = 0
+                    while (i < SIZE) {
+                        val id = plane[i + j * SIZE]
+                        if (id < 0) {
+                            ++i
+                            continue
+                        }
+                        var w = 1
+                        while (i + w < SIZE && plane[i + w + j * SIZE] == id) ++w
+                        var h = 1
+                        expand@ while (j + h < SIZE) {
+                            for (k in 0 until w) {
+                                if (plane[i + k + (j + h) * SIZE] != id) break@expand
+                            }
+                            ++h
+                        }
+                        for (dj in 0 until h) {
+                            plane.fill(-1, i + (j + dj) * SIZE, i + w + (j + dj) * SIZE)
+                        }
+                        pos[n] = slice
+                        pos[a] = i
+                        pos[b] = j
+                        extent[n] = 1
+                        extent[a] = w
+                        extent[b] = h
+                        val block = BlockRegistry[id]
+                        emitFace(builder, block, face)
+                        if (overlay != 0) emitFace(builder, block, overlay)
+                        i += w
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Emit a quad of [face] at [pos], which spans [extent] blocks.
+     */
+    private fun emitFace(builder: MeshBuilder, block: Block, face: Int) {
+        val vertices = getVertices(face)
+        val texCoords = getTexCoords(face)
+        val faceIndex = faceIndex(face)
+        val tilesU = extent[U_AXES[faceIndex]]
+        val tilesV = extent[V_AXES[faceIndex]]
+        val color = block.getColor(face)
+        val sprite = BlockSprites[block, face]
+        for (i in 0 until 4) {
+            builder.vertex(
+                vertices[i * 3] * extent[0] + pos[0],
+                vertices[i * 3 + 1] * extent[1] + pos[1],
+                vertices[i * 3 + 2] * extent[2] + pos[2],
+                color,
+                if (texCoords[i * 2] == texCoords[0]) 0 else tilesU,
+                if (texCoords[i * 2 + 1] == texCoords[1]) 0 else tilesV,
+                sprite
+            )
+        }
+    }
+}
@@ -0,0 +1,414 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render
+
+import io.github.overrun.freeworld.FreeWorld.Companion.logger
+import io.github.overrun.freeworld.block.Blocks.*
+import io.github.overrun.freeworld.client.GlProgram
+import io.github.overrun.freeworld.client.GlStateManager
+import io.github.overrun.freeworld.client.GlStateManager.bindTexture
+import io.github.overrun.freeworld.client.GlUniform
+import io.github.overrun.freeworld.client.Texture
+import io.github.overrun.freeworld.entity.player.Player
+import io.github.overrun.freeworld.world.World
+import io.github.overrun.freeworld.world.chunk.Chunk
+import io.github.overrun.freeworld.world.chunk.ChunkMap
+import io.github.overrun.freeworld.world.chunk.ChunkSection
+import io.github.overrun.freeworld.world.chunk.ChunkSection.Companion.SHIFT
+import io.github.overrun.freeworld.world.chunk.ChunkSection.Companion.SIZE
+import org.joml.FrustumIntersection
+import org.joml.FrustumIntersection.INSIDE
+import org.joml.FrustumIntersection.INTERSECT
+import org.joml.FrustumIntersection.OUTSIDE
+import org.joml.Matrix4f
+import org.lwjgl.opengl.GL15.*
+import java.io.Closeable
+import kotlin.math.floor
+
+/**
+ * Renders the loaded chunks of the world with baked [meshes][ChunkMesh].
+ *
+ * A section is only rebuilt when its [revision][ChunkSection.revision]
+ * changed, so a frame costs one draw for each section. All the sections
+ * use the [atlas][BlockSprites] of the blocks.
+ * The meshes are built by the [ChunkBuilder] workers, and at most
+ * [UPLOADS_PER_FRAME] sections are uploaded in a frame. The old meshes are
+ * drawn until the new ones are uploaded.
+ *
+ * The chunks outside the view frustum are skipped, and so are the sections
+ * outside it in the chunks crossing its planes. The counts of the tested,
+ * culled and drawn chunks are in [RenderStats].
+ *
+ * With [OCCLUSION_CULLING], the sections are visited breadth first from
+ * the section of the camera, only going through the faces which the
+ * [connectivity][SectionConnectivity] of a section links to the face it
+ * was entered from, and never going back towards the camera. The sections
+ * behind solid terrain are not reached and not drawn.
+ *
+ * The meshes are kept in one [shared buffer][ChunkVertexBuffer]. With
+ * [multiDraw], the visible sections are drawn by one [ChunkBatch] call. The program
+ * must then be `shader/core/chunk_batch`, see [isMultiDrawSupported].
+ *
+ * @param multiDraw Draw all the sections with one call.
+ * @author squid233
+ * @since 2021/05/08
+ */
+class ChunkRenderer @JvmOverloads constructor(
+    private val atlas: Texture,
+    val multiDraw: Boolean = false
+) : Closeable {
+    companion object {
+        val GREEDY_MESHING = System.getProperty("freeworld.greedyMeshing", "false").toBoolean()
+        val BUILDER_THREADS = System.getProperty(
+            "freeworld.chunk.builders",
+            (Runtime.getRuntime().availableProcessors() - 1).coerceIn(1, 4).toString()
+        ).toInt()
+        val UPLOADS_PER_FRAME = System.getProperty("freeworld.chunk.uploads", "8").toInt()
+        val OCCLUSION_CULLING = System.getProperty("freeworld.occlusionCulling", "true").toBoolean()
+        val MULTI_DRAW = System.getProperty("freeworld.chunk.multiDraw", "true").toBoolean()
+
+        /**
+         * Whether the sections can be drawn with one call, which needs the
+         * core profile, [ChunkBatch.isSupported] and [MULTI_DRAW].
+         * The GL context must be current.
+         */
+        @JvmStatic
+        fun isMultiDrawSupported() =
+            MULTI_DRAW && GlStateManager.isCoreProfile() && ChunkBatch.isSupported()
+    }
+
+    private class RenderSection {
+        var section: ChunkSection? = null
+        var revision = 0
+        /** The revision which failed to build, or -1. It is not submitted again. */
+        var failedRevision = -1
+        var mesh: ChunkMesh? = null
+        /** The build in flight, or `null`. */
+        var task: ChunkBuilder.Task? = null
+        /** The faces connected to each other, all of them until built. */
+        var connectivity = SectionConnectivity.ALL
+
+        fun close() {
+            task?.cancelled = true
+            task = null
+            mesh?.close()
+            mesh = null
+        }
+    }
+
+    private class RenderChunk(val chunk: Chunk) {
+        val sections = arrayOfNulls<RenderSection>(chunk.sections.size)
+        var frame = 0
+        /** The frustum intersection of the chunk in this frame. */
+        var intersection = OUTSIDE
+        var drawnFrame = 0
+        /** The frame each section was visited by the occlusion culling. */
+        val visitedFrames = IntArray(chunk.sections.size)
+
+        fun close() {
+            for (section in sections) section?.close()
+        }
+    }
+
+    private val chunks = ChunkMap<RenderChunk>()
+    private val builder = ChunkBuilder(BUILDER_THREADS, UPLOADS_PER_FRAME * 4)
+    private val quadIndices = QuadIndexBuffer()
+    private val vertices = ChunkVertexBuffer()
+    private val batch = if (multiDraw) ChunkBatch(vertices, quadIndices) else null
+    private var frame = 0
+    private var removeKeys = LongArray(16)
+    private var maxQuads = 0
+    private var greedy = GREEDY_MESHING
+    private var logQuadCount = false
+    private var uniformProgram: GlProgram? = null
+    private lateinit var modelViewUniform: GlUniform.Mat4
+    private var chunkOffsetUniform: GlUniform.Vec3? = null
+    private val viewProjection = Matrix4f()
+    private val frustum = FrustumIntersection()
+    private var traversalProgram: GlProgram? = null
+    private val traversal = object : SectionTraversal<RenderChunk>() {
+        override fun getNeighbor(column: RenderChunk, dx: Int, dz: Int) =
+            chunks[ChunkMap.key(column.chunk.x + dx, column.chunk.z + dz)]
+
+        override fun getHeight(column: RenderChunk) = column.sections.size
+
+        override fun getConnectivity(column: RenderChunk, sectionY: Int) =
+            column.sections[sectionY]?.connectivity ?: SectionConnectivity.ALL
+
+        override fun markVisited(column: RenderChunk, sectionY: Int): Boolean {
+            if (column.visitedFrames[sectionY] == frame) return false
+            column.visitedFrames[sectionY] = frame
+            return true
+        }
+
+        override fun isVisible(column: RenderChunk, sectionY: Int) =
+            isInFrustum(column, sectionY)
+
+        override fun visit(column: RenderChunk, sectionY: Int) {
+            column.sections[sectionY]?.mesh?.let { render(traversalProgram!!, column, sectionY, it) }
+        }
+    }
+
+    /** The count of quads in all the meshes. */
+    var quadCount = 0
+        private set
+
+    /** The count of sections waiting to be built. */
+    val pendingCount get() = builder.pendingCount
+
+    /**
+     * Merge the coplanar faces when building the meshes. Changing it
+     * rebuilds all the sections, and logs the new count of quads.
+     */
+    var greedyMeshing
+        get() = greedy
+        set(value) {
+            if (greedy == value) return
+            greedy = value
+            chunks.forEach { chunk ->
+                for (section in chunk.sections) section?.section = null
+            }
+            logQuadCount = true
+        }
+
+    fun render(world: World, program: GlProgram, projectionMatrix: Matrix4f, viewMatrix: Matrix4f) {
+        ++frame
+        world.forEachChunk { update(world, it) }
+        removeUnloaded()
+        upload()
+        if (logQuadCount && !isBuilding()) {
+            logger.info("Greedy meshing ${if (greedy) "on" else "off"}: $quadCount quads")
+            logQuadCount = false
+        }
+        if (uniformProgram !== program) {
+            program.setUniformVec4s("sprites", BlockSprites.REGIONS)
+            modelViewUniform = program.getMat4("modelViewMatrix")
+            // The batch passes the offsets as an attribute
+            chunkOffsetUniform = if (batch == null) program.getVec3("chunkOffset") else null
+            uniformProgram = program
+        }
+        modelViewUniform.set(viewMatrix)
+        // The vertex arrays of the meshes keep the element buffer
+        if (GlStateManager.isCoreProfile()) quadIndices.reserve(maxQuads)
+        else quadIndices.bind(maxQuads)
+        bindTexture(0, atlas.id)
+        frustum.set(viewProjection.set(projectionMatrix).mul(viewMatrix))
+        chunks.forEach { chunk ->
+            val x = (chunk.chunk.x shl SHIFT).toFloat()
+            val z = (chunk.chunk.z shl SHIFT).toFloat()
+            val height = (chunk.sections.size shl SHIFT).toFloat()
+            chunk.intersection = frustum.intersectAab(x, 0f, z, x + SIZE, height, z + SIZE)
+            RenderStats.countChunkTest(chunk.intersection == OUTSIDE)
+        }
+        if (!OCCLUSION_CULLING || !renderReachable(program)) {
+            chunks.forEach { chunk ->
+                if (chunk.intersection == OUTSIDE) return@forEach
+                for (i in chunk.sections.indices) {
+                    val mesh = chunk.sections[i]?.mesh ?: continue
+                    if (isInFrustum(chunk, i)) render(program, chunk, i, mesh)
+                }
+            }
+        }
+        batch?.draw(program)
+        // The buffers don't fit the formats of the other programs
+        if (!GlStateManager.isCoreProfile())
+            program.disableVertexAttribArrays("in_position", "in_tile", "in_color")
+    }
+
+    private fun isInFrustum(chunk: RenderChunk, sectionY: Int): Boolean {
+        // A chunk inside the frustum contains its sections
+        if (chunk.intersection != INTERSECT) return chunk.intersection == INSIDE
+        val x = (chunk.chunk.x shl SHIFT).toFloat()
+        val y = (sectionY shl SHIFT).toFloat()
+        val z = (chunk.chunk.z shl SHIFT).toFloat()
+        return frustum.testAab(x, y, z, x + SIZE, y + SIZE, z + SIZE)
+    }
+
+    private fun render(program: GlProgram, chunk: RenderChunk, sectionY: Int, mesh: ChunkMesh) {
+        val x = (chunk.chunk.x shl SHIFT).toFloat()
+        val y = (sectionY shl SHIFT).toFloat()
+        val z = (chunk.chunk.z shl SHIFT).toFloat()
+        if (batch != null) {
+            batch.add(mesh, x, y, z)
+        } else {
+            chunkOffsetUniform!!.set(x, y, z)
+            mesh.render(program)
+        }
+        RenderStats.countSectionDrawn()
+        if (chunk.drawnFrame != frame) {
+            chunk.drawnFrame = frame
+            RenderStats.countChunkDrawn()
+        }
+    }
+
+    /**
+     * Render the sections reachable from the camera.
+     *
+     * @return `false` if the camera isn't in a loaded section,
+     * then nothing is rendered.
+     */
+    private fun renderReachable(program: GlProgram): Boolean {
+        val cameraY = floor(Player.y + Player.EYE_HEIGHT).toInt() shr SHIFT
+        val start = chunks[ChunkMap.key(
+            floor(Player.x).toInt() shr SHIFT,
+            floor(Player.z).toInt() shr SHIFT
+        )] ?: return false
+        if (cameraY !in start.sections.indices) return false
+        traversalProgram = program
+        traversal.traverse(start, cameraY)
+        return true
+    }
+
+    private fun update(world: World, chunk: Chunk) {
+        val key = ChunkMap.key(chunk.x, chunk.z)
+        var renderChunk = chunks[key]
+        if (renderChunk == null || renderChunk.chunk !== chunk) {
+            renderChunk?.let { close(it) }
+            renderChunk = RenderChunk(chunk)
+            chunks.put(key, renderChunk)
+        }
+        renderChunk.frame = frame
+        for (i in chunk.sections.indices) {
+            val section = chunk.sections[i]
+            var renderSection = renderChunk.sections[i]
+            if (section == null) {
+                if (renderSection != null) {
+                    close(renderSection)
+                    renderChunk.sections[i] = null
+                }
+                continue
+            }
+            if (renderSection == null) {
+                renderSection = RenderSection()
+                renderChunk.sections[i] = renderSection
+            } else if (renderSection.section === section
+                && (renderSection.revision == section.revision || renderSection.failedRevision == section.revision)
+            ) continue
+            renderSection.section = section
+            renderSection.revision = section.revision
+            submit(chunk, i, section, renderSection)
+        }
+    }
+
+    /** Whether any section is being built, or waiting to be uploaded. */
+    fun isBuilding(): Boolean {
+        chunks.forEach { chunk ->
+            for (section in chunk.sections) {
+                if (section?.task != null) return true
+            }
+        }
+        return false
+    }
+
+    private fun submit(chunk: Chunk, sectionY: Int, section: ChunkSection, renderSection: RenderSection) {
+        // The newer build replaces the one in flight
+        renderSection.task?.cancelled = true
+        val dx = (chunk.x shl SHIFT) + SIZE / 2 - Player.x
+        val dy = (sectionY shl SHIFT) + SIZE / 2 - Player.y
+        val dz = (chunk.z shl SHIFT) + SIZE / 2 - Player.z
+        val task = ChunkBuilder.Task(
+            chunk.x,
+            sectionY,
+            chunk.z,
+            section.copy(),
+            greedy,
+            dx * dx + dy * dy + dz * dz
+        )
+        renderSection.task = task
+        builder.submit(task)
+    }
+
+    private fun upload() {
+        for (n in 0 until UPLOADS_PER_FRAME) {
+            val result = builder.poll() ?: return
+            val task = result.task
+            val renderSection = chunks[ChunkMap.key(task.chunkX, task.chunkZ)]
+                ?.sections
+                ?.get(task.sectionY)
+            if (renderSection != null && renderSection.task === task) {
+                renderSection.task = null
+                val built = result.builder
+                if (built == null) {
+                    // Failed, submit it again once the section is changed
+                    renderSection.failedRevision = renderSection.revision
+                } else {
+                    renderSection.failedRevision = -1
+                    renderSection.connectivity = result.connectivity
+                    upload(renderSection, built)
+                }
+            }
+            builder.recycle(result)
+        }
+    }
+
+    private fun upload(renderSection: RenderSection, builder: MeshBuilder) {
+        var mesh = renderSection.mesh
+        if (mesh != null) quadCount -= mesh.quadCount
+        if (builder.quadCount == 0) {
+            mesh?.close()
+            renderSection.mesh = null
+            return
+        }
+        if (mesh == null) {
+            mesh = ChunkMesh(quadIndices, vertices)
+            renderSection.mesh = mesh
+        }
+        mesh.upload(builder)
+        quadCount += mesh.quadCount
+        if (mesh.quadCount > maxQuads) maxQuads = mesh.quadCount
+    }
+
+    private fun close(renderSection: RenderSection) {
+        quadCount -= renderSection.mesh?.quadCount ?: 0
+        renderSection.close()
+    }
+
+    private fun close(renderChunk: RenderChunk) {
+        for (section in renderChunk.sections) section?.let { close(it) }
+    }
+
+    private fun removeUnloaded() {
+        var count = 0
+        chunks.forEach {
+            if (it.frame != frame) {
+                if (count == removeKeys.size)
+                    removeKeys = removeKeys.copyOf(count * 2)
+                removeKeys[count++] = ChunkMap.key(it.chunk.x, it.chunk.z)
+            }
+        }
+        for (i in 0 until count) {
+            close(chunks.remove(removeKeys[i]) ?: continue)
+        }
+    }
+
+    override fun close() {
+        builder.close()
+        chunks.forEach { it.close() }
+        chunks.clear()
+        batch?.close()
+        vertices.close()
+        quadIndices.close()
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render
+
+import io.github.overrun.freeworld.FreeWorld.Companion.logger
+import io.github.overrun.freeworld.client.GlStateManager.bindBuffer
+import io.github.overrun.freeworld.client.GlStateManager.deleteBuffer
+import io.github.overrun.freeworld.client.gl.backend
+import io.github.overrun.freeworld.client.render.MeshBuilder.Companion.VERTEX_SIZE
+import io.github.overrun.freeworld.util.BufferArena
+import org.lwjgl.opengl.GL31.*
+import org.lwjgl.system.MemoryUtil
+import java.io.Closeable
+import java.nio.ByteBuffer
+
+/**
+ * One GL buffer holding the vertices of all the [chunk meshes][ChunkMesh],
+ * sub-allocated by a [BufferArena] in whole vertices.
+ *
+ * When no free range is large enough, the buffer is defragmented if at
+ * least a quarter of it would stay free, or grows to twice the size
+ * otherwise. Both move the data to a new buffer, so the [id] and the
+ * offsets of the allocations must be read at the time of drawing.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+class ChunkVertexBuffer(initialCapacity: Long = 4L shl 20) : Closeable {
+    private val arena = BufferArena(initialCapacity, VERTEX_SIZE.toLong())
+
+    var id = backend.glGenBuffers()
+        private set
+
+    val capacity get() = arena.capacity
+
+    /** The bytes of the live allocations. */
+    val usedBytes get() = arena.usedBytes
+
+    /** See [BufferArena.fragmentation]. */
+    val fragmentation get() = arena.fragmentation
+
+    init {
+        bindBuffer(GL_ARRAY_BUFFER, id)
+        backend.glBufferData(GL_ARRAY_BUFFER, capacity, GL_DYNAMIC_DRAW)
+        updateStats()
+    }
+
+    private fun updateStats() =
+        RenderStats.updateChunkBuffer(arena.usedBytes, arena.capacity, arena.fragmentation)
+
+    fun allocate(size: Long): BufferArena.Allocation {
+        arena.allocate(size)?.let {
+            updateStats()
+            return it
+        }
+        val capacity = arena.capacity
+        if (arena.freeBytes - size >= capacity / 4) {
+            relocate(capacity)
+        } else {
+            var newCapacity = capacity * 2
+            while (newCapacity < (arena.usedBytes + size) * 2) newCapacity *= 2
+            relocate(newCapacity)
+        }
+        return arena.allocate(size)!!.also { updateStats() }
+    }
+
+    /** Release an allocation, for the next ones to reuse. */
+    fun free(allocation: BufferArena.Allocation) {
+        arena.free(allocation)
+        updateStats()
+    }
+
+    fun upload(allocation: BufferArena.Allocation, data: ByteBuffer) {
+        bindBuffer(GL_ARRAY_BUFFER, id)
+        backend.glBufferSubData(GL_ARRAY_BUFFER, allocation.offset, data)
+        RenderStats.countUpload(data.remaining().toLong())
+    }
+
+    /**
+     * Move the data to a new buffer of [newCapacity] bytes, packed if the
+     * capacity doesn't change.
+     */
+    private fun relocate(newCapacity: Long) {
+        val oldCapacity = arena.capacity
+        val oldId = id
+        id = backend.glGenBuffers()
+        if (backend.isCopyBufferSupported()) {
+            // The copy targets aren't used by anything else, so they are not cached
+            backend.glBindBuffer(GL_COPY_READ_BUFFER, oldId)
+            backend.glBindBuffer(GL_COPY_WRITE_BUFFER, id)
+            backend.glBufferData(GL_COPY_WRITE_BUFFER, newCapacity, GL_DYNAMIC_DRAW)
+            relocate(newCapacity) { from, to, size ->
+                backend.glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER, from, to, size)
+            }
+            backend.glBindBuffer(GL_COPY_READ_BUFFER, 0)
+            backend.glBindBuffer(GL_COPY_WRITE_BUFFER, 0)
+        } else {
+            // Read the data back where GL can't copy between buffers
+            val data = MemoryUtil.memAlloc(oldCapacity.toInt())
+            bindBuffer(GL_ARRAY_BUFFER, oldId)
+            backend.glGetBufferSubData(GL_ARRAY_BUFFER, 0L, data)
+            bindBuffer(GL_ARRAY_BUFFER, id)
+            backend.glBufferData(GL_ARRAY_BUFFER, newCapacity, GL_DYNAMIC_DRAW)
+            relocate(newCapacity) { from, to, size ->
+                data.limit((from + size).toInt()).position(from.toInt())
+                backend.glBufferSubData(GL_ARRAY_BUFFER, to, data)
+            }
+            MemoryUtil.memFree(data)
+        }
+        deleteBuffer(oldId)
+        logger.debug(
+            "Relocated chunk vertices: ${arena.usedBytes} bytes in use, " +
+                    "capacity $oldCapacity -> $newCapacity"
+        )
+    }
+
+    private fun relocate(newCapacity: Long, copy: (from: Long, to: Long, size: Long) -> Unit) {
+        if (newCapacity == arena.capacity) {
+            arena.defragment { allocation, newOffset -> copy(allocation.offset, newOffset, allocation.size) }
+        } else {
+            copy(0L, 0L, arena.capacity)
+            arena.grow(newCapacity)
+        }
+    }
+
+    override fun close() =
+        deleteBuffer(id)
+}
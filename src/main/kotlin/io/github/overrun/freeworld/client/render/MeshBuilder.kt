@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render
+
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+/**
+ * Collects quads on CPU side, ready to upload to GL.
+ *
+ * Each quad is 4 vertices, and will be drawn with the shared indices
+ * `0, 1, 3, 3, 1, 2`. The buffer is direct, so building does not
+ * need a GL context.
+ *
+ * The vertices are interleaved in [VERTEX_SIZE] bytes:
+ * - `short * 4`: the position relative to the section origin, in
+ *   1/[POSITION_SCALE] blocks, and the sprite index
+ * - `ubyte * 2`: the texture coordinates, counted in tiles, and 2 bytes padding
+ * - `ubyte * 4`: the normalized color
+ *
+ * The sprite holds the tile in the texture. A quad spanning several blocks
+ * repeats the tile once for each block.
+ *
+ * @author squid233
+ * @since 2021/05/08
+ */
+class MeshBuilder @JvmOverloads constructor(initialQuads: Int = 64) {
+    companion object {
+        const val VERTEX_SIZE = 16
+        const val POSITION_SCALE = 256
+        const val POSITION_OFFSET = 0L
+        const val TILE_OFFSET = 8L
+        const val COLOR_OFFSET = 12L
+
+        private fun allocate(bytes: Int): ByteBuffer =
+            ByteBuffer.allocateDirect(bytes)
+                .order(ByteOrder.nativeOrder())
+    }
+
+    var buffer = allocate(initialQuads * 4 * VERTEX_SIZE)
+        private set
+    var quadCount = 0
+        private set
+    private var vertexInQuad = 0
+    val vertexCount get() = quadCount * 4
+    val indexCount get() = quadCount * 6
+
+    fun clear(): MeshBuilder {
+        buffer.clear()
+        quadCount = 0
+        vertexInQuad = 0
+        return this
+    }
+
+    /** Flip the buffer for reading. */
+    fun end(): MeshBuilder {
+        check(vertexInQuad == 0) { "Quad not finished" }
+        buffer.flip()
+        return this
+    }
+
+    private fun ensureCapacity() {
+        if (buffer.remaining() < 4 * VERTEX_SIZE) {
+            buffer.flip()
+            buffer = allocate(buffer.capacity() * 2).put(buffer)
+        }
+    }
+
+    /**
+     * Add a vertex.
+     *
+     * @param x      The x relative to the section origin.
+     * @param y      The y relative to the section origin.
+     * @param z      The z relative to the section origin.
+     * @param color  The color in `0xRRGGBB`.
+     * @param u      The u in tiles.
+     * @param v      The v in tiles.
+     * @param sprite The index of the sprite.
+     */
+    fun vertex(
+        x: Float, y: Float, z: Float,
+        color: Int,
+        u: Int, v: Int,
+        sprite: Int
+    ): MeshBuilder {
+        if (vertexInQuad == 0) ensureCapacity()
+        buffer.putShort((x * POSITION_SCALE).toInt().toShort())
+            .putShort((y * POSITION_SCALE).toInt().toShort())
+            .putShort((z * POSITION_SCALE).toInt().toShort())
+            .putShort(sprite.toShort())
+            .put(u.toByte())
+            .put(v.toByte())
+            .putShort(0)
+            .put((color shr 16).toByte())
+            .put((color shr 8).toByte())
+            .put(color.toByte())
+            .put(0xff.toByte())
+        if (++vertexInQuad == 4) {
+            vertexInQuad = 0
+            ++quadCount
+        }
+        return this
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render
+
+import io.github.overrun.freeworld.client.GlStateManager.bindBuffer
+import io.github.overrun.freeworld.client.GlStateManager.deleteBuffer
+import io.github.overrun.freeworld.client.gl.backend
+import org.lwjgl.opengl.GL15.*
+import org.lwjgl.system.MemoryUtil
+import java.io.Closeable
+
+/**
+ * An element buffer holding `0, 1, 3, 3, 1, 2` for each quad,
+ * shared by all the meshes made of quads.
+ *
+ * The data is uploaded through `GL_ARRAY_BUFFER`, so that growing the
+ * buffer doesn't change the element buffer of the bound vertex array.
+ *
+ * @author squid233
+ * @since 2021/05/08
+ */
+class QuadIndexBuffer : Closeable {
+    val id = backend.glGenBuffers()
+    private var quadCount = 0
+
+    /**
+     * Bind the buffer as the element buffer, growing it to hold at
+     * least [quads] quads.
+     */
+    fun bind(quads: Int) {
+        reserve(quads)
+        bindBuffer(GL_ELEMENT_ARRAY_BUFFER, id)
+    }
+
+    /**
+     * Grow the buffer to hold at least [quads] quads.
+     */
+    fun reserve(quads: Int) {
+        if (quads > quadCount) {
+            quadCount = maxOf(quads, quadCount * 2, 1024)
+            val buffer = MemoryUtil.memAllocInt(quadCount * 6)
+            for (i in 0 until quadCount) {
+                val v = i * 4
+                buffer.put(v).put(v + 1).put(v + 3)
+                    .put(v + 3).put(v + 1).put(v + 2)
+            }
+            bindBuffer(GL_ARRAY_BUFFER, id)
+            backend.glBufferData(GL_ARRAY_BUFFER, buffer.flip(), GL_STATIC_DRAW)
+            MemoryUtil.memFree(buffer)
+            RenderStats.countUpload(quadCount * 6 * 4L)
+        }
+    }
+
+    override fun close() =
+        deleteBuffer(id)
+}
@@ -0,0 +1,203 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render
+
+import io.github.overrun.freeworld.FreeWorld.Companion.logger
+
+/**
+ * Counts the GL work of each frame, the state calls
+ * [skipped][io.github.overrun.freeworld.client.GlStateManager] and how many
+ * chunks the frustum culling skipped.
+ *
+ * The `chunkBuffer*` properties are not per frame, but the state of the
+ * [ChunkVertexBuffer] when last changed.
+ *
+ * The counters are increased while rendering, and moved to the `last*`
+ * properties by [endFrame]. With `-Dfreeworld.debug.renderStats=true`,
+ * the last frame is logged each second.
+ *
+ * @author squid233
+ * @since 2021/05/10
+ */
+object RenderStats {
+    private val LOG = System.getProperty("freeworld.debug.renderStats", "false").toBoolean()
+    private const val LOG_INTERVAL = 1_000_000_000L
+
+    private var drawCalls = 0
+    private var sectionsDrawn = 0
+    private var bufferUploads = 0
+    private var uploadedBytes = 0L
+    private var streamUploads = 0
+    private var streamedBytes = 0L
+    private var stateCalls = 0
+    private var skippedStateCalls = 0
+    private var chunksTested = 0
+    private var chunksCulled = 0
+    private var chunksDrawn = 0
+    private var lastLogTime = System.nanoTime()
+    private var frames = 0
+
+    var lastDrawCalls = 0
+        private set
+    /** The sections drawn, by one call each or batched. */
+    var lastSectionsDrawn = 0
+        private set
+    /** The uploads of mesh data, none in the steady state. */
+    var lastBufferUploads = 0
+        private set
+    var lastUploadedBytes = 0L
+        private set
+    /** The writes of the data rebuilt every frame. */
+    var lastStreamUploads = 0
+        private set
+    var lastStreamedBytes = 0L
+        private set
+    /** The state calls which reached GL. */
+    var lastStateCalls = 0
+        private set
+    var lastSkippedStateCalls = 0
+        private set
+    var lastChunksTested = 0
+        private set
+    var lastChunksCulled = 0
+        private set
+    var lastChunksDrawn = 0
+        private set
+    /** The bytes allocated in the [ChunkVertexBuffer]. */
+    var chunkBufferUsedBytes = 0L
+        private set
+    var chunkBufferCapacity = 0L
+        private set
+    /** See [io.github.overrun.freeworld.util.BufferArena.fragmentation]. */
+    var chunkBufferFragmentation = 0f
+        private set
+
+    @JvmStatic
+    fun countDraw() {
+        ++drawCalls
+    }
+
+    @JvmStatic
+    fun countSectionDrawn() {
+        ++sectionsDrawn
+    }
+
+    /**
+     * Count a `glBufferData` or `glBufferSubData` of mesh data.
+     */
+    @JvmStatic
+    fun countUpload(bytes: Long) {
+        ++bufferUploads
+        uploadedBytes += bytes
+    }
+
+    /**
+     * Count a write of the data rebuilt every frame, as the
+     * [StreamBuffer] and the [ChunkBatch] commands.
+     */
+    @JvmStatic
+    fun countStreamUpload(bytes: Long) {
+        ++streamUploads
+        streamedBytes += bytes
+    }
+
+    /**
+     * Count a call to change the GL state.
+     *
+     * @param skipped Whether the state was already set, and GL wasn't called.
+     */
+    @JvmStatic
+    fun countStateCall(skipped: Boolean) {
+        if (skipped) ++skippedStateCalls
+        else ++stateCalls
+    }
+
+    /**
+     * Count a chunk tested against the view frustum.
+     *
+     * @param culled Whether the chunk is outside the frustum.
+     */
+    @JvmStatic
+    fun countChunkTest(culled: Boolean) {
+        ++chunksTested
+        if (culled) ++chunksCulled
+    }
+
+    /** Count a chunk with at least one section drawn. */
+    @JvmStatic
+    fun countChunkDrawn() {
+        ++chunksDrawn
+    }
+
+    @JvmStatic
+    fun updateChunkBuffer(usedBytes: Long, capacity: Long, fragmentation: Float) {
+        chunkBufferUsedBytes = usedBytes
+        chunkBufferCapacity = capacity
+        chunkBufferFragmentation = fragmentation
+    }
+
+    @JvmStatic
+    fun endFrame() {
+        lastDrawCalls = drawCalls
+        lastSectionsDrawn = sectionsDrawn
+        lastBufferUploads = bufferUploads
+        lastUploadedBytes = uploadedBytes
+        lastStreamUploads = streamUploads
+        lastStreamedBytes = streamedBytes
+        lastStateCalls = stateCalls
+        lastSkippedStateCalls = skippedStateCalls
+        lastChunksTested = chunksTested
+        lastChunksCulled = chunksCulled
+        lastChunksDrawn = chunksDrawn
+        drawCalls = 0
+        sectionsDrawn = 0
+        bufferUploads = 0
+        uploadedBytes = 0L
+        streamUploads = 0
+        streamedBytes = 0L
+        stateCalls = 0
+        skippedStateCalls = 0
+        chunksTested = 0
+        chunksCulled = 0
+        chunksDrawn = 0
+        ++frames
+        if (LOG) {
+            val time = System.nanoTime()
+            if (time - lastLogTime >= LOG_INTERVAL) {
+                logger.info(
+                    "$frames fps, last frame: $lastDrawCalls draws, $lastSectionsDrawn sections, " +
+                            "$lastBufferUploads uploads, $lastUploadedBytes bytes, " +
+                            "$lastStreamUploads streamed, $lastStreamedBytes bytes, " +
+                            "state calls: $lastStateCalls issued, $lastSkippedStateCalls skipped, " +
+                            "chunks: $lastChunksTested tested, $lastChunksCulled culled, $lastChunksDrawn drawn, " +
+                            "chunk buffer: $chunkBufferUsedBytes/$chunkBufferCapacity bytes, " +
+                            "${(chunkBufferFragmentation * 100).toInt()}% fragmented"
+                )
+                lastLogTime = time
+                frames = 0
+            }
+        }
+    }
+}
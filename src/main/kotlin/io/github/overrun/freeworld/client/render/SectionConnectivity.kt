@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render
+
+import io.github.overrun.freeworld.block.BlockRegistry
+import io.github.overrun.freeworld.block.Blocks.*
+import io.github.overrun.freeworld.world.chunk.ChunkSection.Companion.MASK
+import io.github.overrun.freeworld.world.chunk.ChunkSection.Companion.SHIFT
+import io.github.overrun.freeworld.world.chunk.ChunkSection.Companion.VOLUME
+
+/**
+ * Finds which faces of a section can be seen through each other, by flood
+ * filling the cells which are not opaque. A block is opaque when it
+ * [covers][io.github.overrun.freeworld.block.Block.fullFaces] all its sides.
+ *
+ * The result is a set of face pairs, see [isConnected].
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+class SectionConnectivity {
+    companion object {
+        /** Every face connects to the others, like in an empty section. */
+        const val ALL = (1L shl 36) - 1
+
+        @JvmStatic
+        fun isConnected(connectivity: Long, from: Int, to: Int) =
+            ((connectivity ushr (bit(from) * 6 + bit(to))) and 1L) != 0L
+
+        private fun bit(face: Int) = Integer.numberOfTrailingZeros(face)
+    }
+
+    private val visited = BooleanArray(VOLUME)
+    private val queue = IntArray(VOLUME)
+
+    /**
+     * Compute the connectivity of a section.
+     *
+     * @param ids The block ids of the section, by [index][io.github.overrun.freeworld.world.chunk.ChunkSection.getIndex].
+     */
+    fun compute(ids: IntArray): Long {
+        for (i in 0 until VOLUME) {
+            visited[i] = BlockRegistry[ids[i]].fullFaces == SIDE_MASK
+        }
+        var result = 0L
+        for (start in 0 until VOLUME) {
+            if (visited[start]) continue
+            val faces = fill(start)
+            for (from in SIDES) {
+                if ((faces and from) == 0) continue
+                for (to in SIDES) {
+                    if ((faces and to) != 0)
+                        result = result or (1L shl (bit(from) * 6 + bit(to)))
+                }
+            }
+            if (result == ALL) break
+        }
+        return result
+    }
+
+    /**
+     * Fill the open cells connected to [start].
+     *
+     * @return The faces of the section the cells touch.
+     */
+    private fun fill(start: Int): Int {
+        var faces = 0
+        var head = 0
+        var tail = 0
+        visited[start] = true
+        queue[tail++] = start
+        while (head < tail) {
+            val index = queue[head++]
+            val x = index and MASK
+            val y = index shr (SHIFT * 2)
+            val z = (index shr SHIFT) and MASK
+            if (x == 0) faces = faces or FACE_LEFT else tail = visit(index - 1, tail)
+            if (x == MASK) faces = faces or FACE_RIGHT else tail = visit(index + 1, tail)
+            if (y == 0) faces = faces or FACE_BOTTOM else tail = visit(index - (1 shl (SHIFT * 2)), tail)
+            if (y == MASK) faces = faces or FACE_TOP else tail = visit(index + (1 shl (SHIFT * 2)), tail)
+            if (z == 0) faces = faces or FACE_BACK else tail = visit(index - (1 shl SHIFT), tail)
+            if (z == MASK) faces = faces or FACE_FRONT else tail = visit(index + (1 shl SHIFT), tail)
+        }
+        return faces
+    }
+
+    private fun visit(index: Int, tail: Int): Int {
+        if (visited[index]) return tail
+        visited[index] = true
+        queue[tail] = index
+        return tail + 1
+    }
+}
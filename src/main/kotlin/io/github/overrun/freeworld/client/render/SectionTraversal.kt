@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render
+
+import io.github.overrun.freeworld.block.Blocks.*
+
+/**
+ * Walks the sections reachable from the camera, breadth first. A section
+ * is left through a face only if that face is [connected][SectionConnectivity]
+ * to the one it was entered from, and the path never turns back toward
+ * the camera.
+ *
+ * The sections are stored in columns of type [T], indexed by y.
+ * The queue is kept between the calls, so a traversal doesn't allocate.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+abstract class SectionTraversal<T : Any> {
+    private var queueColumns = arrayOfNulls<Any>(64)
+    private var queueNodes = IntArray(64)
+
+    /** Get the column next to [column], or `null` if it isn't loaded. */
+    protected abstract fun getNeighbor(column: T, dx: Int, dz: Int): T?
+
+    /** Get the count of sections in [column]. */
+    protected abstract fun getHeight(column: T): Int
+
+    /** Get the [connectivity][SectionConnectivity] of the section. */
+    protected abstract fun getConnectivity(column: T, sectionY: Int): Long
+
+    /**
+     * Mark the section as visited in this traversal.
+     *
+     * @return `false` if it was already visited.
+     */
+    protected abstract fun markVisited(column: T, sectionY: Int): Boolean
+
+    /** Whether the section can be seen at all, e.g. it is in the frustum. */
+    protected abstract fun isVisible(column: T, sectionY: Int): Boolean
+
+    /** Called once for each section reached, the camera section first. */
+    protected abstract fun visit(column: T, sectionY: Int)
+
+    /**
+     * Visit the sections reachable from the camera.
+     *
+     * @param start   The column of the camera.
+     * @param cameraY The section y of the camera, in the column.
+     */
+    fun traverse(start: T, cameraY: Int) {
+        var head = 0
+        var tail = 0
+        markVisited(start, cameraY)
+        queueColumns[tail] = start
+        queueNodes[tail++] = node(cameraY, 0, 0)
+        while (head < tail) {
+            @Suppress("UNCHECKED_CAST")
+            val column = queueColumns[head] as T
+            val node = queueNodes[head++]
+            val sectionY = node ushr 12
+            val entry = (node ushr 6) and SIDE_MASK
+            val directions = node and SIDE_MASK
+            visit(column, sectionY)
+            val connectivity = getConnectivity(column, sectionY)
+            for (face in SIDES) {
+                if ((directions and getOpposite(face)) != 0) continue
+                if (entry != 0 && !SectionConnectivity.isConnected(connectivity, entry, face)) continue
+                val nextY = sectionY + getOffsetY(face)
+                if (nextY < 0 || nextY >= getHeight(column)) continue
+                val next = if (getOffsetY(face) != 0) column
+                else getNeighbor(column, getOffsetX(face), getOffsetZ(face)) ?: continue
+                if (!markVisited(next, nextY) || !isVisible(next, nextY)) continue
+                if (tail == queueNodes.size) {
+                    queueColumns = queueColumns.copyOf(tail * 2)
+                    queueNodes = queueNodes.copyOf(tail * 2)
+                }
+                queueColumns[tail] = next
+                queueNodes[tail++] = node(nextY, getOpposite(face), directions or face)
+            }
+        }
+        queueColumns.fill(null, 0, tail)
+    }
+
+    /**
+     * Pack a section in the queue.
+     *
+     * @param entry      The face the section was entered from, or 0 for the camera.
+     * @param directions The faces gone through from the camera.
+     */
+    private fun node(sectionY: Int, entry: Int, directions: Int) =
+        (sectionY shl 12) or (entry shl 6) or directions
+}
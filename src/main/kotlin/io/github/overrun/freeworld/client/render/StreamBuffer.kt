@@ -0,0 +1,236 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render
+
+import io.github.overrun.freeworld.client.GlStateManager.bindBuffer
+import io.github.overrun.freeworld.client.GlStateManager.deleteBuffer
+import io.github.overrun.freeworld.client.gl.LwjglBackend
+import io.github.overrun.freeworld.client.gl.backend
+import org.lwjgl.opengl.GL
+import org.lwjgl.opengl.GL44.*
+import org.lwjgl.system.MemoryUtil
+import java.io.Closeable
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.util.*
+
+/**
+ * A ring of GL buffer memory for the data written each frame, such as the
+ * outlines and the GUI. The data is written straight to the mapped buffer
+ * between [map] and [unmap], and never waits for the GPU:
+ *
+ * - With GL 4.4 or `ARB_buffer_storage`, the buffer is mapped once, and a
+ *   fence is placed at each [endFrame]. When the ring reaches data whose
+ *   fence has not signaled yet, the buffer is replaced by a larger one.
+ * - Otherwise each range is mapped unsynchronized, and the buffer is
+ *   orphaned when the ring wraps. Without `ARB_map_buffer_range`, the data
+ *   is written to client memory and uploaded by `glBufferSubData`, which is
+ *   also done with a [backend] other than [LwjglBackend].
+ *
+ * The [id] changes when the buffer is replaced.
+ *
+ * Disable the persistent mapping by `-Dfreeworld.stream.persistent=false`.
+ *
+ * @param alignment The offsets are rounded up to it, usually the vertex size.
+ * @author squid233
+ * @since 2021/05/11
+ */
+class StreamBuffer(
+    initialCapacity: Int = 1 shl 20,
+    private val alignment: Int = 16
+) : Closeable {
+    companion object {
+        private val PERSISTENT = System.getProperty("freeworld.stream.persistent", "true").toBoolean()
+        private const val PERSISTENT_FLAGS = GL_MAP_WRITE_BIT or GL_MAP_PERSISTENT_BIT or GL_MAP_COHERENT_BIT
+        private const val RANGE_FLAGS = GL_MAP_WRITE_BIT or GL_MAP_INVALIDATE_RANGE_BIT or
+                GL_MAP_UNSYNCHRONIZED_BIT or GL_MAP_FLUSH_EXPLICIT_BIT
+    }
+
+    /** The ring position at the end of a frame, and the fence of the frame. */
+    private class Fence(val sync: Long, val end: Long)
+
+    private val persistent: Boolean
+    private val mapRange: Boolean
+    private val fences = ArrayDeque<Fence>()
+    private var mapped: ByteBuffer? = null
+    private var staging: ByteBuffer? = null
+    /** The bytes written since the buffer was created, a position in the ring. */
+    private var head = 0L
+    /** The bytes the GPU is done with, for the persistent mapping. */
+    private var retired = 0L
+    private var mapStart = -1
+    private var mapOffset = 0L
+
+    var id = 0
+        private set
+    var capacity = align(initialCapacity)
+        private set
+
+    init {
+        // The other backends have no capabilities nor mappings
+        val caps = if (backend is LwjglBackend) GL.getCapabilities() else null
+        persistent = caps != null && PERSISTENT &&
+                (caps.OpenGL44 || caps.GL_ARB_buffer_storage) && caps.glFenceSync != 0L
+        mapRange = caps != null && (caps.OpenGL30 || caps.GL_ARB_map_buffer_range)
+        create(capacity)
+    }
+
+    private fun align(size: Int) =
+        (size + alignment - 1) / alignment * alignment
+
+    private fun create(capacity: Int) {
+        this.capacity = capacity
+        id = backend.glGenBuffers()
+        bindBuffer(GL_ARRAY_BUFFER, id)
+        if (persistent) {
+            glBufferStorage(GL_ARRAY_BUFFER, capacity.toLong(), PERSISTENT_FLAGS)
+            mapped = glMapBufferRange(GL_ARRAY_BUFFER, 0L, capacity.toLong(), PERSISTENT_FLAGS)
+        } else {
+            backend.glBufferData(GL_ARRAY_BUFFER, capacity.toLong(), GL_STREAM_DRAW)
+        }
+        head = 0L
+        retired = 0L
+    }
+
+    /**
+     * Replace the buffer, leaving the old one to the GPU until it is done.
+     */
+    private fun replace(capacity: Int) {
+        for (fence in fences) glDeleteSync(fence.sync)
+        fences.clear()
+        // Deleting a mapped buffer unmaps it
+        deleteBuffer(id)
+        mapped = null
+        create(capacity)
+    }
+
+    /** Forget the frames the GPU has finished, without waiting. */
+    private fun retire() {
+        while (fences.isNotEmpty()) {
+            val fence = fences.peekFirst()
+            val status = glClientWaitSync(fence.sync, 0, 0L)
+            if (status != GL_ALREADY_SIGNALED && status != GL_CONDITION_SATISFIED) return
+            glDeleteSync(fence.sync)
+            retired = fence.end
+            fences.removeFirst()
+        }
+    }
+
+    /**
+     * Get the memory to write at most [size] bytes to, from its position.
+     * Call [unmap] after writing.
+     */
+    fun map(size: Int): ByteBuffer {
+        check(mapStart < 0) { "The buffer is already mapped" }
+        val aligned = align(size)
+        val buffer: ByteBuffer
+        if (persistent) {
+            var offset = (head % capacity).toInt()
+            var padding = if (offset + aligned > capacity) capacity - offset else 0
+            if (head + padding + aligned - retired > capacity) {
+                retire()
+                if (head + padding + aligned - retired > capacity) {
+                    replace(maxOf(capacity * 2, align(aligned * 2)))
+                    offset = 0
+                    padding = 0
+                }
+            }
+            head += padding
+            if (padding != 0) offset = 0
+            buffer = mapped!!.clear().position(offset).limit(offset + size)
+            mapOffset = offset.toLong()
+        } else {
+            if (aligned > capacity) {
+                deleteBuffer(id)
+                create(align(aligned * 2))
+            } else if (head + aligned > capacity) {
+                // Orphan the storage the GPU may still read
+                bindBuffer(GL_ARRAY_BUFFER, id)
+                backend.glBufferData(GL_ARRAY_BUFFER, capacity.toLong(), GL_STREAM_DRAW)
+                head = 0L
+            }
+            mapOffset = head
+            buffer = if (mapRange) {
+                bindBuffer(GL_ARRAY_BUFFER, id)
+                glMapBufferRange(GL_ARRAY_BUFFER, head, size.toLong(), RANGE_FLAGS)!!
+            } else {
+                val staging = staging.let {
+                    if (it == null || it.capacity() < size) {
+                        if (it != null) MemoryUtil.memFree(it)
+                        MemoryUtil.memAlloc(size)
+                    } else it
+                }
+                this.staging = staging
+                staging.clear().limit(size)
+            }
+        }
+        mapStart = buffer.position()
+        return buffer.order(ByteOrder.nativeOrder())
+    }
+
+    /**
+     * Finish writing to the buffer got by [map].
+     *
+     * @return The offset of the written data in the GL buffer.
+     */
+    fun unmap(buffer: ByteBuffer): Long {
+        check(mapStart >= 0) { "The buffer is not mapped" }
+        val size = buffer.position() - mapStart
+        mapStart = -1
+        if (!persistent) {
+            bindBuffer(GL_ARRAY_BUFFER, id)
+            if (mapRange) {
+                glFlushMappedBufferRange(GL_ARRAY_BUFFER, 0L, size.toLong())
+                glUnmapBuffer(GL_ARRAY_BUFFER)
+            } else if (size > 0) {
+                backend.glBufferSubData(GL_ARRAY_BUFFER, mapOffset, buffer.flip())
+            }
+        }
+        if (size > 0) RenderStats.countStreamUpload(size.toLong())
+        head += align(size)
+        return mapOffset
+    }
+
+    /**
+     * Mark the end of the frame. The data of the frame may be overwritten
+     * once the GPU is done with it.
+     */
+    fun endFrame() {
+        if (!persistent) return
+        val last = fences.peekLast()
+        if (head != (last?.end ?: retired)) {
+            fences.addLast(Fence(glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0), head))
+        }
+        retire()
+    }
+
+    override fun close() {
+        for (fence in fences) glDeleteSync(fence.sync)
+        fences.clear()
+        deleteBuffer(id)
+        staging?.let { MemoryUtil.memFree(it) }
+        staging = null
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render
+
+import io.github.overrun.freeworld.client.GlProgram
+import io.github.overrun.freeworld.client.GlStateManager
+import io.github.overrun.freeworld.client.GlStateManager.bindBuffer
+import io.github.overrun.freeworld.client.GlStateManager.bindVertexArray
+import io.github.overrun.freeworld.client.GlStateManager.deleteVertexArray
+import io.github.overrun.freeworld.client.gl.backend
+import org.lwjgl.opengl.GL20.*
+import java.io.Closeable
+import java.nio.ByteBuffer
+
+/**
+ * Draws the geometry built each frame, such as the outlines and the GUI,
+ * from a [StreamBuffer]. The vertices are written straight to the buffer
+ * between [begin] and [end], as a `float3` position and an `ubyte4` color.
+ *
+ * The programs must have the attributes `vert` and `in_color`, and are
+ * drawn without texture.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+class StreamRenderer : Closeable {
+    companion object {
+        const val VERTEX_SIZE = 16
+        private const val COLOR_OFFSET = 12L
+    }
+
+    private val buffer = StreamBuffer(alignment = VERTEX_SIZE)
+    private var vao = 0
+    private var vaoProgram: GlProgram? = null
+    private var vaoBuffer = 0
+    private var data: ByteBuffer? = null
+    private var mode = 0
+    private var maxVertices = 0
+    var vertexCount = 0
+        private set
+
+    /**
+     * Start writing at most [maxVertices] vertices, drawn in [mode].
+     */
+    fun begin(mode: Int, maxVertices: Int) {
+        check(data == null) { "Already building" }
+        this.mode = mode
+        this.maxVertices = maxVertices
+        vertexCount = 0
+        data = buffer.map(maxVertices * VERTEX_SIZE)
+    }
+
+    /**
+     * Write a vertex.
+     *
+     * @param color The color in `0xAARRGGBB`.
+     */
+    fun vertex(x: Float, y: Float, z: Float, color: Int): StreamRenderer {
+        check(vertexCount < maxVertices) { "Too many vertices, reserved $maxVertices" }
+        data!!.putFloat(x).putFloat(y).putFloat(z)
+            .put((color ushr 16).toByte())
+            .put((color ushr 8).toByte())
+            .put(color.toByte())
+            .put((color ushr 24).toByte())
+        ++vertexCount
+        return this
+    }
+
+    /**
+     * Write a rectangle at [z] as two triangles, for [GL_TRIANGLES].
+     */
+    fun quad(x0: Float, y0: Float, x1: Float, y1: Float, z: Float, color: Int): StreamRenderer =
+        vertex(x0, y0, z, color).vertex(x0, y1, z, color).vertex(x1, y0, z, color)
+            .vertex(x1, y0, z, color).vertex(x0, y1, z, color).vertex(x1, y1, z, color)
+
+    /**
+     * Finish writing, and draw the vertices with [program], which must be bound.
+     */
+    fun end(program: GlProgram) {
+        val data = checkNotNull(data) { "Not building" }
+        this.data = null
+        val offset = buffer.unmap(data)
+        if (vertexCount == 0) return
+        program.findInt("hasTexture")?.set(0)
+        if (GlStateManager.isCoreProfile()) {
+            if (vao == 0) vao = backend.glGenVertexArrays()
+            bindVertexArray(vao)
+            // Replacing the stream buffer changes the id
+            if (vaoProgram !== program || vaoBuffer != buffer.id) {
+                pointAttributes(program)
+                vaoProgram = program
+                vaoBuffer = buffer.id
+            }
+        } else {
+            pointAttributes(program)
+            // Left enabled by the textured meshes, and would read past their buffers
+            program.disableVertexAttribArrays("in_texCoord")
+        }
+        backend.glDrawArrays(mode, (offset / VERTEX_SIZE).toInt(), vertexCount)
+        RenderStats.countDraw()
+    }
+
+    private fun pointAttributes(program: GlProgram) {
+        bindBuffer(GL_ARRAY_BUFFER, buffer.id)
+        program.enableVertAttribArrPtr("vert", 3, GL_FLOAT, false, VERTEX_SIZE)
+        program.enableVertAttribArrPtr("in_color", 4, GL_UNSIGNED_BYTE, true, VERTEX_SIZE, COLOR_OFFSET)
+    }
+
+    /** See [StreamBuffer.endFrame]. */
+    fun endFrame() =
+        buffer.endFrame()
+
+    override fun close() {
+        buffer.close()
+        if (vao != 0) deleteVertexArray(vao)
+    }
+}
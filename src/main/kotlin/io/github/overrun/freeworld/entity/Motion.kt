@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.entity
+
+/**
+ * The position of a moving object at the last two ticks, to draw it
+ * between them. The simulation [ticks][tick] it and passes copies to the
+ * main thread, which [interpolates][lerpX] by the part of the tick passed.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+class Motion(x: Float = 0f, y: Float = 0f, z: Float = 0f) {
+    /** The tick this is the state after. */
+    var tick = 0L
+    var prevX = x
+        private set
+    var prevY = y
+        private set
+    var prevZ = z
+        private set
+    var x = x
+    var y = y
+    var z = z
+
+    /** Start a tick, moving from the current position. */
+    fun tick(tick: Long) {
+        this.tick = tick
+        prevX = x
+        prevY = y
+        prevZ = z
+    }
+
+    /** Move to a position without passing the ones between. */
+    fun teleport(x: Float, y: Float, z: Float) {
+        this.x = x
+        this.y = y
+        this.z = z
+        prevX = x
+        prevY = y
+        prevZ = z
+    }
+
+    fun set(other: Motion) {
+        tick = other.tick
+        prevX = other.prevX
+        prevY = other.prevY
+        prevZ = other.prevZ
+        x = other.x
+        y = other.y
+        z = other.z
+    }
+
+    fun lerpX(alpha: Float) = prevX + (x - prevX) * alpha
+
+    fun lerpY(alpha: Float) = prevY + (y - prevY) * alpha
+
+    fun lerpZ(alpha: Float) = prevZ + (z - prevZ) * alpha
+}
@@ -24,33 +24,118 @@
 
 package io.github.overrun.freeworld.entity.player
 
+import io.github.overrun.freeworld.entity.Motion
+import io.github.overrun.freeworld.util.Handoff
 import java.lang.Math.toRadians
+import java.util.concurrent.atomic.AtomicReference
 import kotlin.math.cos
 import kotlin.math.sin
 
 /**
+ * The player is moved by the simulation [ticks][tick], from the [input][setInput]
+ * of the main thread. The main thread draws it at the position [interpolated][interpolate]
+ * between the last two ticks, which is [x], [y] and [z].
+ *
  * @author squid233
  * @since 2021/03/22
  */
 object Player {
+    /** The height of the eyes above [y]. */
+    const val EYE_HEIGHT = 1.44f
+    /** The blocks moved per second. */
+    const val SPEED = 18.75f
+
+    /** The movement keys held and the direction, from the main thread. */
+    private class Input {
+        var strafe = 0f
+        var vertical = 0f
+        var forward = 0f
+        var rotY = 0f
+    }
+
+    /** The position drawn in this frame, on the main thread. */
     var x = 2f
+        private set
     var y = 3f
+        private set
     var z = 2f
+        private set
     var rotX = 0f
     var rotY = 0f
     var playing = false
 
-    fun moveRelative(ox: Float, oy: Float, oz: Float) {
+    /** The state of the simulation thread. */
+    private val motion = Motion(x, y, z)
+    private val motions = Handoff { Motion(x, y, z) }
+    private val inputs = Handoff { Input() }
+    private val teleport = AtomicReference<FloatArray?>()
+
+    /**
+     * Set the movement on the main thread, each in `-1` to `1`, and pass
+     * it to the simulation with the current [rotY].
+     */
+    fun setInput(strafe: Float, vertical: Float, forward: Float) {
+        with(inputs.write) {
+            this.strafe = strafe
+            this.vertical = vertical
+            this.forward = forward
+            this.rotY = Player.rotY
+        }
+        inputs.publish()
+    }
+
+    /** Move to a position at the next tick, from any thread. */
+    fun teleport(x: Float, y: Float, z: Float) =
+        teleport.set(floatArrayOf(x, y, z))
+
+    /**
+     * Run a tick on the simulation thread.
+     *
+     * @param delta The seconds of a tick.
+     * @param tick  The number of the tick.
+     */
+    fun tick(delta: Float, tick: Long) {
+        motion.tick(tick)
+        val position = teleport.getAndSet(null)
+        if (position != null) {
+            motion.teleport(position[0], position[1], position[2])
+        } else {
+            val input = inputs.read()
+            val distance = SPEED * delta
+            moveRelative(input.strafe * distance, input.vertical * distance, input.forward * distance, input.rotY)
+        }
+        motions.write.set(motion)
+        motions.publish()
+    }
+
+    private fun moveRelative(ox: Float, oy: Float, oz: Float, rotY: Float) {
         if (ox != 0f) {
-            x += sin(toRadians(rotY - 90.0)).toFloat() * -1.0f * ox
-            z += cos(toRadians(rotY - 90.0)).toFloat() * ox
+            motion.x += sin(toRadians(rotY - 90.0)).toFloat() * -1.0f * ox
+            motion.z += cos(toRadians(rotY - 90.0)).toFloat() * ox
         }
-        y += oy
+        motion.y += oy
         if (oz != 0f) {
-            x += sin(toRadians(rotY.toDouble())).toFloat() * -1.0f * (-oz)
-            z += cos(toRadians(rotY.toDouble())).toFloat() * (-oz)
+            motion.x += sin(toRadians(rotY.toDouble())).toFloat() * -1.0f * (-oz)
+            motion.z += cos(toRadians(rotY.toDouble())).toFloat() * (-oz)
         }
     }
 
-    fun speed() = 0.3125f
-}
\ No newline at end of file
+    /**
+     * Set the position drawn in this frame on the main thread.
+     *
+     * @param alpha The part of the tick passed since [tick] ran.
+     * @param tick  The number of the last tick.
+     */
+    fun interpolate(alpha: Float, tick: Long) {
+        val motion = motions.read()
+        // A tick run after the alpha was taken starts from where it ends
+        val a = when {
+            motion.tick > tick -> 0f
+            motion.tick < tick -> 1f
+            else -> alpha
+        }
+        x = motion.lerpX(a)
+        y = motion.lerpY(a)
+        z = motion.lerpZ(a)
+    }
+}
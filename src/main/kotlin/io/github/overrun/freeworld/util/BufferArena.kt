@@ -0,0 +1,168 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.util
+
+import java.util.*
+
+/**
+ * Sub-allocates the ranges of a large buffer, without touching the buffer
+ * itself. Keeping the data in place is up to the owner of the buffer.
+ *
+ * The free ranges are kept in a list sorted by offset, and merged with their
+ * neighbors when freed. The allocation is first-fit. When the free space is
+ * split too much, [defragment] packs the allocations to the start.
+ *
+ * @param alignment The sizes and offsets are rounded up to it.
+ * @author squid233
+ * @since 2021/05/11
+ */
+class BufferArena(capacity: Long, val alignment: Long = 1L) {
+    /**
+     * A range of the buffer. The [offset] changes when [defragmented][defragment].
+     */
+    class Allocation internal constructor(offset: Long, val size: Long) {
+        var offset = offset
+            internal set
+        var isLive = true
+            internal set
+    }
+
+    /** offset -> size */
+    private val free = TreeMap<Long, Long>()
+    private val live = TreeMap<Long, Allocation>()
+
+    var capacity = capacity
+        private set
+
+    /** The bytes in use, including the alignment. */
+    var usedBytes = 0L
+        private set
+
+    val freeBytes get() = capacity - usedBytes
+
+    val allocationCount get() = live.size
+
+    val freeBlockCount get() = free.size
+
+    val largestFreeBlock get() = free.values.maxOrNull() ?: 0L
+
+    /**
+     * The part of the free bytes out of the largest free block, 0 when the
+     * free space is in one piece and close to 1 when it is split to pieces.
+     */
+    val fragmentation: Float
+        get() = if (freeBytes == 0L) 0f
+        else 1f - largestFreeBlock.toFloat() / freeBytes.toFloat()
+
+    init {
+        require(alignment > 0L) { "The alignment must be positive" }
+        require(capacity % alignment == 0L) { "The capacity must be aligned" }
+        if (capacity > 0L) free[0L] = capacity
+    }
+
+    private fun align(size: Long) =
+        (size + alignment - 1) / alignment * alignment
+
+    /**
+     * Allocate a range.
+     *
+     * @return The range, or `null` if no free range is large enough.
+     */
+    fun allocate(size: Long): Allocation? {
+        require(size > 0L) { "The size must be positive" }
+        val aligned = align(size)
+        for ((offset, blockSize) in free) {
+            if (blockSize < aligned) continue
+            free.remove(offset)
+            if (blockSize > aligned) free[offset + aligned] = blockSize - aligned
+            val allocation = Allocation(offset, aligned)
+            live[offset] = allocation
+            usedBytes += aligned
+            return allocation
+        }
+        return null
+    }
+
+    fun free(allocation: Allocation) {
+        require(allocation.isLive) { "The allocation is already freed" }
+        require(live[allocation.offset] === allocation) { "The allocation is not from this arena" }
+        live.remove(allocation.offset)
+        allocation.isLive = false
+        usedBytes -= allocation.size
+        var offset = allocation.offset
+        var size = allocation.size
+        // Merge with the neighbors
+        val before = free.floorEntry(offset)
+        if (before != null && before.key + before.value == offset) {
+            free.remove(before.key)
+            offset = before.key
+            size += before.value
+        }
+        val after = free[offset + size]
+        if (after != null) {
+            free.remove(offset + size)
+            size += after
+        }
+        free[offset] = size
+    }
+
+    /**
+     * Grow the capacity, keeping the allocations where they are.
+     */
+    fun grow(newCapacity: Long) {
+        require(newCapacity >= capacity) { "The capacity can't shrink" }
+        require(newCapacity % alignment == 0L) { "The capacity must be aligned" }
+        if (newCapacity == capacity) return
+        val last = free.lastEntry()
+        if (last != null && last.key + last.value == capacity) {
+            free[last.key] = last.value + newCapacity - capacity
+        } else {
+            free[capacity] = newCapacity - capacity
+        }
+        capacity = newCapacity
+    }
+
+    /**
+     * Pack the allocations to the start of the buffer, in the order of their
+     * offsets, leaving one free range at the end.
+     *
+     * @param move Called for each allocation with its new offset, before
+     *             [Allocation.offset] changes. The new offset is never after
+     *             the old one.
+     */
+    fun defragment(move: (allocation: Allocation, newOffset: Long) -> Unit) {
+        val allocations = live.values.toList()
+        live.clear()
+        var top = 0L
+        for (allocation in allocations) {
+            move(allocation, top)
+            allocation.offset = top
+            live[top] = allocation
+            top += allocation.size
+        }
+        free.clear()
+        if (top < capacity) free[top] = capacity - top
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.util
+
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Passes the newest state from one thread to another without locks, by
+ * three slots: one [written][write] by the producer, one [read] by the
+ * consumer, and one between them, swapped in by [publish] and [read].
+ *
+ * The producer writes all of the state each time, as the slot it gets
+ * holds an old state.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+class Handoff<T>(factory: () -> T) {
+    companion object {
+        private const val INDEX = 3
+        private const val FRESH = 4
+    }
+
+    private val slots = MutableList(3) { factory() }
+    /** The index of the slot between the threads, with [FRESH] if not read yet. */
+    private val middle = AtomicInteger(1)
+    private var back = 0
+    private var front = 2
+
+    /** The slot for the producer to write. */
+    val write: T get() = slots[back]
+
+    /** Pass the [written][write] slot to the consumer. */
+    fun publish() {
+        back = middle.getAndSet(back or FRESH) and INDEX
+    }
+
+    /** Get the newest published state, which stays valid until the next call. */
+    fun read(): T {
+        if (middle.get() and FRESH != 0) front = middle.getAndSet(front) and INDEX
+        return slots[front]
+    }
+}
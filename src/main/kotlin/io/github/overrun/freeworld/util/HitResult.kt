@@ -25,7 +25,6 @@
 package io.github.overrun.freeworld.util
 
 import io.github.overrun.freeworld.block.Blocks
-import io.github.overrun.freeworld.client.Mesh
 import io.github.overrun.freeworld.client.game.GameObject
 
 /**
@@ -40,8 +39,6 @@ class HitResult : GameObject {
     var face = 0
     var block = Blocks.air
 
-    override val mesh: Mesh? = null
-
     override fun getPrevX() = x.toFloat()
 
     override fun getPrevY() = y.toFloat()
@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.util
+
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Counts the wake ups of a [Timer] by how late they are, in buckets of
+ * [BUCKET] nanoseconds, the last holding the later ones. It can be recorded
+ * by one thread and read by the others.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+class JitterHistogram(val name: String) {
+    companion object {
+        const val BUCKET = 50_000L
+        const val BUCKETS = 100
+    }
+
+    private val counts = AtomicLongArray(BUCKETS + 1)
+
+    fun record(lateNanos: Long) {
+        counts.incrementAndGet(minOf(maxOf(lateNanos, 0L) / BUCKET, BUCKETS.toLong()).toInt())
+    }
+
+    val count: Long
+        get() {
+            var sum = 0L
+            for (i in 0..BUCKETS) sum += counts[i]
+            return sum
+        }
+
+    fun getCount(bucket: Int) = counts[bucket]
+
+    /** The part of the wake ups late by at most [nanos]. */
+    fun within(nanos: Long): Float {
+        val total = count
+        if (total == 0L) return 1f
+        var sum = 0L
+        for (i in 0 until minOf((nanos / BUCKET).toInt(), BUCKETS)) sum += counts[i]
+        return sum.toFloat() / total.toFloat()
+    }
+
+    /**
+     * The upper bound of the bucket holding [percentile] percent of
+     * the wake ups, or [Long.MAX_VALUE] if in the last bucket.
+     */
+    fun percentile(percentile: Float): Long {
+        val target = count * percentile / 100f
+        var sum = 0L
+        for (i in 0 until BUCKETS) {
+            sum += counts[i]
+            if (sum >= target) return (i + 1) * BUCKET
+        }
+        return Long.MAX_VALUE
+    }
+
+    fun reset() {
+        for (i in 0..BUCKETS) counts[i] = 0L
+    }
+
+    override fun toString(): String {
+        val p99 = percentile(99f)
+        return "$name: $count samples, ${(within(500_000L) * 100).toInt()}% within 0.5 ms, " +
+                "p50 < ${percentile(50f) / 1000} us, " +
+                "p99 < ${if (p99 == Long.MAX_VALUE) "overflow" else "${p99 / 1000} us"}"
+    }
+}
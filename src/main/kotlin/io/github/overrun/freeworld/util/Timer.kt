@@ -24,26 +24,67 @@
 
 package io.github.overrun.freeworld.util
 
+import java.util.concurrent.locks.LockSupport
+
 /**
+ * Waits for the deadlines of a fixed rate. The deadlines are counted from
+ * the start, not from the last wake up, so the errors don't add up.
+ *
+ * The thread is parked until shortly before the deadline, and spins for
+ * the rest. The spin time follows how late the parking wakes up, which
+ * is about 0.1 ms on Linux and up to a few on Windows.
+ *
+ * @param rate    The deadlines per second.
+ * @param maxLag  The periods to catch up by not waiting, when behind;
+ *                the schedule restarts when further behind.
+ * @param jitter  Records how late each wake up is, if not `null`.
  * @author squid233
  * @since 2021/03/18
  */
-class Timer {
-    var lastLoopTime = 0.0
-    private set
-
-    fun init() {
-        lastLoopTime = getTime()
+class Timer(
+    rate: Int,
+    private val maxLag: Int = 0,
+    val jitter: JitterHistogram? = null
+) {
+    companion object {
+        private const val MIN_SPIN = 200_000L
+        private const val MAX_SPIN = 4_000_000L
     }
 
-    fun getTime(): Double {
-        return System.nanoTime() / 1_000_000_000.0
+    /** The nanoseconds between the deadlines. */
+    val period = 1_000_000_000L / rate
+    private var deadline = 0L
+    private var spin = 1_000_000L
+
+    /** Start the schedule, with the first deadline one period from now. */
+    fun init() {
+        deadline = System.nanoTime() + period
     }
 
-    fun getElapsedTime(): Float {
-        val time = getTime()
-        val elapsedTime = (time - lastLoopTime).toFloat()
-        lastLoopTime = time
-        return elapsedTime
+    /**
+     * Wait for the next deadline.
+     *
+     * @return The nanoseconds the wake up is late by.
+     */
+    fun await(): Long {
+        var now = System.nanoTime()
+        while (deadline - now > spin) {
+            val wake = deadline - spin
+            LockSupport.parkNanos(wake - now)
+            now = System.nanoTime()
+            val overshoot = now - wake
+            // Spin longer after late wake ups, and slowly less after the others
+            spin = if (overshoot > spin) minOf(overshoot + overshoot / 4, MAX_SPIN)
+            else maxOf(spin - (spin - MIN_SPIN) / 64, MIN_SPIN)
+        }
+        while (deadline - now > 0L) {
+            Thread.onSpinWait()
+            now = System.nanoTime()
+        }
+        val late = now - deadline
+        jitter?.record(late)
+        deadline += period
+        if (now - deadline > maxLag * period) deadline = now + period
+        return late
     }
-}
\ No newline at end of file
+}
@@ -54,21 +54,6 @@ object Utils {
             }
         }
 
-    /**
-     * Create an array with `1.0f` for GL.
-     *
-     * @param size       Size from `indices`.
-     * @param multiplier Composites of color. For rgba, it's `4`.
-     * @return The array with size `size`*`multiplier` fill with `1.0f`.
-     */
-    @JvmStatic
-    @JvmOverloads
-    fun makeColor1f(size: Int, multiplier: Int = 4): FloatArray {
-        val arr = FloatArray(size * multiplier)
-        arr.fill(1.0f)
-        return arr
-    }
-
     /**
      * Create an array with `0`.
      *
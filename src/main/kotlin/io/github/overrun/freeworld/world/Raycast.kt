@@ -0,0 +1,180 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.world
+
+import io.github.overrun.freeworld.block.Block
+import io.github.overrun.freeworld.block.Blocks.*
+import io.github.overrun.freeworld.util.HitResult
+import kotlin.math.abs
+import kotlin.math.floor
+
+/**
+ * Finds the first block hit by a ray.
+ *
+ * The blocks along the ray are visited one by one, and the boxes of their
+ * [outline shapes][io.github.overrun.freeworld.block.Block.getOutlineShape]
+ * are tested for the exact hit. Nothing is allocated, and no GL is needed.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+object Raycast {
+    /**
+     * Cast a ray.
+     *
+     * @param view        The blocks.
+     * @param originX     The x of the origin.
+     * @param originY     The y of the origin.
+     * @param originZ     The z of the origin.
+     * @param dirX        The x of the normalized direction.
+     * @param dirY        The y of the normalized direction.
+     * @param dirZ        The z of the normalized direction.
+     * @param maxDistance The max distance from the origin.
+     * @param result      The result to fill with the block, the position and the face hit.
+     * @return Whether a block is hit.
+     */
+    @JvmStatic
+    fun cast(
+        view: BlockView,
+        originX: Float,
+        originY: Float,
+        originZ: Float,
+        dirX: Float,
+        dirY: Float,
+        dirZ: Float,
+        maxDistance: Float,
+        result: HitResult
+    ): Boolean {
+        var x = floor(originX).toInt()
+        var y = floor(originY).toInt()
+        var z = floor(originZ).toInt()
+        val stepX = if (dirX > 0) 1 else -1
+        val stepY = if (dirY > 0) 1 else -1
+        val stepZ = if (dirZ > 0) 1 else -1
+        val deltaX = if (dirX != 0f) abs(1f / dirX) else Float.POSITIVE_INFINITY
+        val deltaY = if (dirY != 0f) abs(1f / dirY) else Float.POSITIVE_INFINITY
+        val deltaZ = if (dirZ != 0f) abs(1f / dirZ) else Float.POSITIVE_INFINITY
+        // The distances to the next borders
+        var maxX = boundary(originX, x, dirX)
+        var maxY = boundary(originY, y, dirY)
+        var maxZ = boundary(originZ, z, dirZ)
+        while (true) {
+            val block = view.getBlock(x, y, z)
+            if (block != air
+                && hitShape(block, x, y, z, originX, originY, originZ, dirX, dirY, dirZ, maxDistance, result)
+            ) return true
+            if (maxX < maxY && maxX < maxZ) {
+                if (maxX > maxDistance) break
+                x += stepX
+                maxX += deltaX
+            } else if (maxY < maxZ) {
+                if (maxY > maxDistance) break
+                y += stepY
+                maxY += deltaY
+            } else {
+                if (maxZ > maxDistance) break
+                z += stepZ
+                maxZ += deltaZ
+            }
+        }
+        result.isNull = true
+        return false
+    }
+
+    private fun boundary(origin: Float, block: Int, dir: Float) = when {
+        dir > 0 -> (block + 1 - origin) / dir
+        dir < 0 -> (block - origin) / dir
+        else -> Float.POSITIVE_INFINITY
+    }
+
+    private fun hitShape(
+        block: Block,
+        x: Int, y: Int, z: Int,
+        originX: Float, originY: Float, originZ: Float,
+        dirX: Float, dirY: Float, dirZ: Float,
+        maxDistance: Float,
+        result: HitResult
+    ): Boolean {
+        val shape = block.getOutlineShape()
+        if (shape.isNull) return false
+        var nearest = Float.POSITIVE_INFINITY
+        var nearestFace = 0
+        for (set in shape.sets) {
+            var near = Float.NEGATIVE_INFINITY
+            var far = Float.POSITIVE_INFINITY
+            var face = 0
+            // x slab
+            if (dirX != 0f) {
+                val t0 = (x + set.originX - originX) / dirX
+                val t1 = (x + set.endX - originX) / dirX
+                val enter = if (dirX > 0) t0 else t1
+                val exit = if (dirX > 0) t1 else t0
+                if (enter > near) {
+                    near = enter
+                    face = if (dirX > 0) FACE_LEFT else FACE_RIGHT
+                }
+                if (exit < far) far = exit
+            } else if (originX < x + set.originX || originX > x + set.endX) continue
+            // y slab
+            if (dirY != 0f) {
+                val t0 = (y + set.originY - originY) / dirY
+                val t1 = (y + set.endY - originY) / dirY
+                val enter = if (dirY > 0) t0 else t1
+                val exit = if (dirY > 0) t1 else t0
+                if (enter > near) {
+                    near = enter
+                    face = if (dirY > 0) FACE_BOTTOM else FACE_TOP
+                }
+                if (exit < far) far = exit
+            } else if (originY < y + set.originY || originY > y + set.endY) continue
+            // z slab
+            if (dirZ != 0f) {
+                val t0 = (z + set.originZ - originZ) / dirZ
+                val t1 = (z + set.endZ - originZ) / dirZ
+                val enter = if (dirZ > 0) t0 else t1
+                val exit = if (dirZ > 0) t1 else t0
+                if (enter > near) {
+                    near = enter
+                    face = if (dirZ > 0) FACE_BACK else FACE_FRONT
+                }
+                if (exit < far) far = exit
+            } else if (originZ < z + set.originZ || originZ > z + set.endZ) continue
+            // The box containing the origin is not hit
+            if (near > far || near < 0 || near > maxDistance) continue
+            if (near < nearest) {
+                nearest = near
+                nearestFace = face
+            }
+        }
+        if (nearestFace == 0) return false
+        result.isNull = false
+        result.x = x
+        result.y = y
+        result.z = z
+        result.face = nearestFace
+        result.block = block
+        return true
+    }
+}
@@ -26,228 +26,250 @@ package io.github.overrun.freeworld.world
 
 import io.github.overrun.freeworld.block.Block
 import io.github.overrun.freeworld.block.Blocks.*
-import io.github.overrun.freeworld.client.GlProgram
-import io.github.overrun.freeworld.client.Transformation
-import io.github.overrun.freeworld.entity.player.Player
-import org.joml.Matrix4f
-import org.lwjgl.opengl.GL11.*
+import io.github.overrun.freeworld.world.chunk.Chunk
+import io.github.overrun.freeworld.world.chunk.ChunkMap
+import io.github.overrun.freeworld.world.chunk.ChunkSection.Companion.MASK
+import io.github.overrun.freeworld.world.chunk.ChunkSection.Companion.SHIFT
+import io.github.overrun.freeworld.world.chunk.ChunkSection.Companion.SIZE
+import kotlin.math.abs
+import kotlin.math.floor
 
 /**
  * This is [world][World].
  * This is not [free][io.github.overrun.freeworld.FreeWorld].
+ *
+ * The blocks are stored in [chunks][Chunk] of 16*16 columns,
+ * each of them split to [sections][io.github.overrun.freeworld.world.chunk.ChunkSection].
+ * The world is infinite in x and z. Only the chunks around the player are
+ * loaded. The modified chunks are [saved][savedChunkCount] when unloaded,
+ * and loaded back instead of generated again.
+ *
+ * The world keeps the [visible faces][getVisibleFaces] of each block
+ * up to date, so the renderer doesn't need to look at the neighbors.
  * @author squid233
  * @since 2021/03/24
  */
 class World(
-    val width: Int,
     val height: Int,
-    val depth: Int
-) {
-    private val blocks = Array(width * height * depth) { air }
+    val loadRadius: Int
+) : BlockView {
+    @PublishedApi
+    internal val chunks = ChunkMap<Chunk>()
+    /** The unloaded chunks which have been modified, by [ChunkMap.key]. */
+    private val savedChunks = ChunkMap<Chunk>()
+    private var lastChunk: Chunk? = null
+    private var unloadKeys = LongArray(16)
 
-    init {
+    private fun generate(chunk: Chunk) {
         val layer = 2
-        for (x in 0 until width) {
-            for (z in 0 until depth) {
+        for (x in 0 until SIZE) {
+            for (z in 0 until SIZE) {
                 for (y in 0 until layer) {
-                    setBlock(x, y, z, dirt)
+                    chunk.setBlock(x, y, z, dirt)
                 }
-                setBlock(x, layer, z, grassBlock)
+                chunk.setBlock(x, layer, z, grassBlock)
             }
         }
     }
 
-    fun render(program: GlProgram, viewMatrix: Matrix4f) {
-        for (x in 0 until width) {
-            for (z in 0 until depth) {
-                for (y in 0 until height) {
-                    val block = getBlock(x, y, z)
-                    block.x = x
-                    block.y = y
-                    block.z = z
-                    if (block != air && (
-                                getBlock(x - 1, y, z) == air
-                                        || getBlock(x + 1, y, z) == air
-                                        || getBlock(x, y - 1, z) == air
-                                        || getBlock(x, y + 1, z) == air
-                                        || getBlock(x, y, z - 1) == air
-                                        || getBlock(x, y, z + 1) == air
-                                )
-                    ) {
-                        program.setUniform(
-                            "modelViewMatrix",
-                            Transformation.getModelViewMatrix(block, viewMatrix)
-                        )
-                        var result = 0
-                        if (getBlock(x - 1, y, z) == air)
-                            result += FACE_LEFT + FACE_OVERLAY_LEFT
-                        if (getBlock(x + 1, y, z) == air)
-                            result += FACE_RIGHT + FACE_OVERLAY_RIGHT
-                        if (getBlock(x, y - 1, z) == air)
-                            result += FACE_BOTTOM
-                        if (getBlock(x, y + 1, z) == air)
-                            result += FACE_TOP
-                        if (getBlock(x, y, z - 1) == air)
-                            result += FACE_BACK + FACE_OVERLAY_BACK
-                        if (getBlock(x, y, z + 1) == air)
-                            result += FACE_FRONT + FACE_OVERLAY_FRONT
-                        block.render(result)
-                    }
-                }
+    /**
+     * Load the chunks in [loadRadius] around the position,
+     * and unload the chunks far away from it.
+     */
+    fun updateChunks(centerX: Float, centerZ: Float) {
+        val cx = floor(centerX).toInt() shr SHIFT
+        val cz = floor(centerZ).toInt() shr SHIFT
+        for (x in cx - loadRadius..cx + loadRadius) {
+            for (z in cz - loadRadius..cz + loadRadius) {
+                getOrLoadChunk(x, z)
+            }
+        }
+        val unloadRadius = loadRadius + 1
+        var count = 0
+        chunks.forEach {
+            if (abs(it.x - cx) > unloadRadius || abs(it.z - cz) > unloadRadius) {
+                if (count == unloadKeys.size)
+                    unloadKeys = unloadKeys.copyOf(count * 2)
+                unloadKeys[count++] = ChunkMap.key(it.x, it.z)
             }
         }
+        for (i in 0 until count) {
+            val chunk = chunks.remove(unloadKeys[i]) ?: continue
+            if (chunk === lastChunk)
+                lastChunk = null
+            if (chunk.modified)
+                savedChunks.put(unloadKeys[i], chunk)
+            // The faces toward the chunk are visible again
+            updateBorders(chunk.x, chunk.z)
+        }
     }
 
-    fun pick(program: GlProgram, viewMatrix: Matrix4f) {
-        glInitNames()
-        glPushName(0)
-        glPushName(0)
-        val boxRadius = 6
-        val pX0 = (Player.x - boxRadius).toInt()
-        val pY0 = (Player.y - boxRadius).toInt()
-        val pZ0 = (Player.z - boxRadius).toInt()
-        val pX1 = (Player.x + boxRadius + 1).toInt()
-        val pY1 = (Player.y + boxRadius + 1).toInt()
-        val pZ1 = (Player.z + boxRadius + 1).toInt()
-        for (x in pX0 until pX1) {
-            glLoadName(x)
-            glPushName(0)
-            for (y in pY0 until pY1) {
-                glLoadName(y)
-                glPushName(0)
-                for (z in pZ0 until pZ1) {
-                    glLoadName(z)
-                    glPushName(0)
-                    val block = getBlock(x, y, z)
-                    block.x = x
-                    block.y = y
-                    block.z = z
-                    if (block != air && (
-                                getBlock(x - 1, y, z) == air
-                                        || getBlock(x + 1, y, z) == air
-                                        || getBlock(x, y - 1, z) == air
-                                        || getBlock(x, y + 1, z) == air
-                                        || getBlock(x, y, z - 1) == air
-                                        || getBlock(x, y, z + 1) == air
-                                )
-                    ) {
-                        program.setUniform(
-                            "modelViewMatrix",
-                            Transformation.getModelViewMatrix(block, viewMatrix)
-                        )
-                        glColor3f(1f, 1f, 1f)
-                        glLoadName(FACE_FRONT)
-                        if (getBlock(x, y, z + 1) == air)
-                            for (set in block.getCollisionShape().sets) {
-                                glBegin(GL_QUADS)
-                                // V0
-                                glVertex3f(set.originX, set.endY, set.endZ)
-                                // V1
-                                glVertex3f(set.originX, set.originY, set.endZ)
-                                // V2
-                                glVertex3f(set.endX, set.originY, set.endZ)
-                                // V3
-                                glVertex3f(set.endX, set.endY, set.endZ)
-                                glEnd()
-                            }
-                        glLoadName(FACE_RIGHT)
-                        if (getBlock(x + 1, y, z) == air)
-                            for (set in block.getCollisionShape().sets) {
-                                glBegin(GL_QUADS)
-                                // V3
-                                glVertex3f(set.endX, set.endY, set.endZ)
-                                // V2
-                                glVertex3f(set.endX, set.originY, set.endZ)
-                                // V6
-                                glVertex3f(set.endX, set.originY, set.originZ)
-                                // V7
-                                glVertex3f(set.endX, set.endY, set.originZ)
-                                glEnd()
-                            }
-                        glLoadName(FACE_TOP)
-                        if (getBlock(x, y + 1, z) == air)
-                            for (set in block.getCollisionShape().sets) {
-                                glBegin(GL_QUADS)
-                                // V4
-                                glVertex3f(set.originX, set.endY, set.originZ)
-                                // V0
-                                glVertex3f(set.originX, set.endY, set.endZ)
-                                // V3
-                                glVertex3f(set.endX, set.endY, set.endZ)
-                                // V7
-                                glVertex3f(set.endX, set.endY, set.originZ)
-                                glEnd()
-                            }
-                        glLoadName(FACE_LEFT)
-                        if (getBlock(x - 1, y, z) == air)
-                            for (set in block.getCollisionShape().sets) {
-                                glBegin(GL_QUADS)
-                                // V4
-                                glVertex3f(set.originX, set.endY, set.originZ)
-                                // V5
-                                glVertex3f(set.originX, set.originY, set.originZ)
-                                // V1
-                                glVertex3f(set.originX, set.originY, set.endZ)
-                                // V0
-                                glVertex3f(set.originX, set.endY, set.endZ)
-                                glEnd()
-                            }
-                        glLoadName(FACE_BACK)
-                        if (getBlock(x, y, z - 1) == air)
-                            for (set in block.getCollisionShape().sets) {
-                                glBegin(GL_QUADS)
-                                // V7
-                                glVertex3f(set.endX, set.endY, set.originZ)
-                                // V6
-                                glVertex3f(set.endX, set.originY, set.originZ)
-                                // V5
-                                glVertex3f(set.originX, set.originY, set.originZ)
-                                // V4
-                                glVertex3f(set.originX, set.endY, set.originZ)
-                                glEnd()
-                            }
-                        glLoadName(FACE_BOTTOM)
-                        if (getBlock(x, y - 1, z) == air)
-                            for (set in block.getCollisionShape().sets) {
-                                glBegin(GL_QUADS)
-                                // V1
-                                glVertex3f(set.originX, set.originY, set.endZ)
-                                // V5
-                                glVertex3f(set.originX, set.originY, set.originZ)
-                                // V6
-                                glVertex3f(set.endX, set.originY, set.originZ)
-                                // V2
-                                glVertex3f(set.endX, set.originY, set.endZ)
-                                glEnd()
-                            }
-                    }
-                    glPopName()
-                }
-                glPopName()
+    val loadedChunkCount get() = chunks.size
+
+    /**
+     * The count of the modified chunks which are unloaded.
+     *
+     * They are not capped: only the chunks edited by the player or the commands
+     * are saved, and their blocks are [palette][io.github.overrun.freeworld.world.chunk.PalettedContainer]
+     * packed.
+     */
+    val savedChunkCount get() = savedChunks.size
+
+    inline fun forEachChunk(action: (Chunk) -> Unit) =
+        chunks.forEach(action)
+
+    /**
+     * The world is unbounded in x and z,
+     * so only the y is checked.
+     */
+    @Suppress("UNUSED_PARAMETER")
+    fun inBound(x: Int, y: Int, z: Int) =
+        y in 0 until height
+
+    /**
+     * Get the loaded chunk by the chunk coordinates.
+     *
+     * @param x The block x shr 4.
+     * @param z The block z shr 4.
+     * @return The chunk, or `null` if not loaded.
+     */
+    fun getChunk(x: Int, z: Int): Chunk? {
+        val last = lastChunk
+        if (last != null && last.x == x && last.z == z)
+            return last
+        val chunk = chunks[ChunkMap.key(x, z)]
+        if (chunk != null) lastChunk = chunk
+        return chunk
+    }
+
+    fun getOrLoadChunk(x: Int, z: Int): Chunk {
+        var chunk = getChunk(x, z)
+        if (chunk == null) {
+            val key = ChunkMap.key(x, z)
+            chunk = savedChunks.remove(key)
+            if (chunk == null) {
+                chunk = Chunk(x, z, height)
+                generate(chunk)
             }
-            glPopName()
+            chunks.put(key, chunk)
+            val originX = x shl SHIFT
+            val originZ = z shl SHIFT
+            updateVisibleFaces(originX, originZ, originX + MASK, originZ + MASK)
+            // The faces at the borders of the neighbors may be hidden now
+            updateBorders(x, z)
         }
-        glPopName()
-        glPopName()
+        return chunk
     }
 
-    fun inBound(x: Int, y: Int, z: Int) =
-        x in 0 until width
-                && y in 0 until height
-                && z in 0 until depth
+    /**
+     * Update the faces of the neighbors at the borders of the chunk,
+     * after it is loaded or unloaded.
+     */
+    private fun updateBorders(x: Int, z: Int) {
+        val originX = x shl SHIFT
+        val originZ = z shl SHIFT
+        getChunk(x - 1, z)?.let {
+            updateVisibleFaces(originX - 1, originZ, originX - 1, originZ + MASK)
+            it.markDirty()
+        }
+        getChunk(x + 1, z)?.let {
+            updateVisibleFaces(originX + SIZE, originZ, originX + SIZE, originZ + MASK)
+            it.markDirty()
+        }
+        getChunk(x, z - 1)?.let {
+            updateVisibleFaces(originX, originZ - 1, originX + MASK, originZ - 1)
+            it.markDirty()
+        }
+        getChunk(x, z + 1)?.let {
+            updateVisibleFaces(originX, originZ + SIZE, originX + MASK, originZ + SIZE)
+            it.markDirty()
+        }
+    }
 
-    fun getIndex(x: Int, y: Int, z: Int) =
-        //(x % width) + (y * width) + (z * width * height)
-        (x) + (y * width * depth) + (z * width)
+    /**
+     * Get the [sides][SIDES] of the block which are not covered by
+     * the [full faces][Block.fullFaces] of its neighbors.
+     */
+    fun getVisibleFaces(x: Int, y: Int, z: Int): Int {
+        if (!inBound(x, y, z)) return 0
+        val section = getChunk(x shr SHIFT, z shr SHIFT)?.getSection(y) ?: return 0
+        return section.getVisibleFaces(x and MASK, y and MASK, z and MASK)
+    }
+
+    private fun computeVisibleFaces(x: Int, y: Int, z: Int, block: Block): Int {
+        if (block == air) return 0
+        var result = 0
+        for (face in SIDES) {
+            val neighbor = getBlock(
+                x + getOffsetX(face),
+                y + getOffsetY(face),
+                z + getOffsetZ(face)
+            )
+            if ((neighbor.fullFaces and getOpposite(face)) == 0)
+                result = result or face
+        }
+        return result
+    }
+
+    private fun updateVisibleFaces(x: Int, y: Int, z: Int) {
+        if (!inBound(x, y, z)) return
+        val section = getChunk(x shr SHIFT, z shr SHIFT)?.getSection(y) ?: return
+        val lx = x and MASK
+        val ly = y and MASK
+        val lz = z and MASK
+        section.setVisibleFaces(lx, ly, lz, computeVisibleFaces(x, y, z, section.getBlock(lx, ly, lz)))
+    }
+
+    /** Update the visible faces in the area, which must be in one chunk. */
+    private fun updateVisibleFaces(x0: Int, z0: Int, x1: Int, z1: Int) {
+        val chunk = getChunk(x0 shr SHIFT, z0 shr SHIFT) ?: return
+        for (y in 0 until height) {
+            if (chunk.getSection(y) == null) continue
+            for (z in z0..z1) {
+                for (x in x0..x1) {
+                    updateVisibleFaces(x, y, z)
+                }
+            }
+        }
+    }
+
+    private fun markSectionDirty(x: Int, y: Int, z: Int) {
+        if (!inBound(x, y, z)) return
+        getChunk(x shr SHIFT, z shr SHIFT)?.getSection(y)?.markDirty()
+    }
 
-    fun getBlock(x: Int, y: Int, z: Int) =
-        if (inBound(x, y, z)) blocks[getIndex(x, y, z)]
-        else air
+    override fun getBlock(x: Int, y: Int, z: Int): Block {
+        if (!inBound(x, y, z)) return air
+        val chunk = getChunk(x shr SHIFT, z shr SHIFT) ?: return air
+        return chunk.getBlock(x and MASK, y, z and MASK)
+    }
 
     @JvmOverloads
     fun setBlock(x: Int, y: Int, z: Int, block: Block, force: Boolean = false) {
         if (!inBound(x, y, z)) return
         if (!force && getBlock(x, y, z) != air) return
-        blocks[getIndex(x, y, z)] = block
+        val chunk = getOrLoadChunk(x shr SHIFT, z shr SHIFT)
+        chunk.setBlock(x and MASK, y, z and MASK, block)
+        chunk.modified = true
+        updateVisibleFaces(x, y, z)
+        for (face in SIDES) {
+            updateVisibleFaces(
+                x + getOffsetX(face),
+                y + getOffsetY(face),
+                z + getOffsetZ(face)
+            )
+        }
+        when (x and MASK) {
+            0 -> markSectionDirty(x - 1, y, z)
+            MASK -> markSectionDirty(x + 1, y, z)
+        }
+        when (y and MASK) {
+            0 -> markSectionDirty(x, y - 1, z)
+            MASK -> markSectionDirty(x, y + 1, z)
+        }
+        when (z and MASK) {
+            0 -> markSectionDirty(x, y, z - 1)
+            MASK -> markSectionDirty(x, y, z + 1)
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.world.chunk
+
+import io.github.overrun.freeworld.block.Block
+import io.github.overrun.freeworld.block.Blocks.air
+import io.github.overrun.freeworld.world.chunk.ChunkSection.Companion.MASK
+import io.github.overrun.freeworld.world.chunk.ChunkSection.Companion.SHIFT
+
+/**
+ * A column of [sections][ChunkSection].
+ *
+ * Sections which only contain air are not allocated.
+ * The x and z passed to the block accessors are local to the chunk,
+ * the y is in range [0..height).
+ *
+ * @author squid233
+ * @since 2021/05/04
+ */
+class Chunk(val x: Int, val z: Int, val height: Int) {
+    val sections = arrayOfNulls<ChunkSection>((height + MASK) shr SHIFT)
+
+    /** Whether the chunk has been changed since generated. */
+    var modified = false
+
+    fun getSection(y: Int) = sections[y shr SHIFT]
+
+    fun markDirty() {
+        for (section in sections) section?.markDirty()
+    }
+
+    fun getBlock(x: Int, y: Int, z: Int): Block {
+        val section = sections[y shr SHIFT] ?: return air
+        return section.getBlock(x, y and MASK, z)
+    }
+
+    fun setBlock(x: Int, y: Int, z: Int, block: Block) {
+        val index = y shr SHIFT
+        var section = sections[index]
+        if (section == null) {
+            if (block == air) return
+            section = ChunkSection()
+            sections[index] = section
+        }
+        section.setBlock(x, y and MASK, z, block)
+        if (section.isEmpty())
+            sections[index] = null
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.world.chunk
+
+/**
+ * An open addressing hash map from packed chunk coordinates to values,
+ * such as [chunks][Chunk].
+ *
+ * The keys are primitive longs made by [key], so no boxing happens on lookup.
+ * Collisions are resolved by linear probing, and removing shifts the
+ * following entries back instead of leaving tombstones.
+ *
+ * @author squid233
+ * @since 2021/05/06
+ */
+class ChunkMap<V : Any> @JvmOverloads constructor(expected: Int = 16) {
+    companion object {
+        private const val LOAD_FACTOR = 0.75f
+
+        @JvmStatic
+        fun key(x: Int, z: Int) =
+            (x.toLong() shl 32) or (z.toLong() and 0xFFFFFFFFL)
+
+        @JvmStatic
+        fun keyX(key: Long) = (key shr 32).toInt()
+
+        @JvmStatic
+        fun keyZ(key: Long) = key.toInt()
+
+        private fun mix(key: Long): Int {
+            val h = key * -7046029254386353131L
+            return (h xor (h ushr 32)).toInt()
+        }
+
+        private fun tableSize(expected: Int): Int {
+            val n = (expected / LOAD_FACTOR).toInt().coerceAtLeast(2)
+            return Integer.highestOneBit(n - 1) shl 1
+        }
+    }
+
+    private var keys = LongArray(tableSize(expected))
+
+    /** The value slots. A `null` slot is empty. */
+    @PublishedApi
+    internal var values = arrayOfNulls<Any>(keys.size)
+    private var mask = keys.size - 1
+    private var maxFill = (keys.size * LOAD_FACTOR).toInt()
+    var size = 0
+        private set
+
+    private fun find(key: Long): Int {
+        var i = mix(key) and mask
+        while (values[i] != null) {
+            if (keys[i] == key) return i
+            i = (i + 1) and mask
+        }
+        return -(i + 1)
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    operator fun get(key: Long): V? {
+        val i = find(key)
+        return if (i >= 0) values[i] as V else null
+    }
+
+    fun containsKey(key: Long) = find(key) >= 0
+
+    /**
+     * Put the value to the map.
+     *
+     * @return The value previous mapped by the key.
+     */
+    @Suppress("UNCHECKED_CAST")
+    fun put(key: Long, value: V): V? {
+        val i = find(key)
+        if (i >= 0) {
+            val old = values[i]
+            values[i] = value
+            return old as V
+        }
+        val slot = -i - 1
+        keys[slot] = key
+        values[slot] = value
+        if (++size > maxFill) rehash(keys.size shl 1)
+        return null
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    fun remove(key: Long): V? {
+        val i = find(key)
+        if (i < 0) return null
+        val old = values[i]
+        shiftKeys(i)
+        --size
+        return old as V
+    }
+
+    private fun shiftKeys(start: Int) {
+        var last = start
+        var pos = start
+        while (true) {
+            pos = (pos + 1) and mask
+            val value = values[pos]
+            if (value == null) {
+                values[last] = null
+                return
+            }
+            val slot = mix(keys[pos]) and mask
+            // Move the entry back if its home slot is not in (last, pos]
+            if (if (last <= pos) last >= slot || slot > pos else slot in (pos + 1)..last) {
+                keys[last] = keys[pos]
+                values[last] = value
+                last = pos
+            }
+        }
+    }
+
+    private fun rehash(newSize: Int) {
+        val oldKeys = keys
+        val oldValues = values
+        keys = LongArray(newSize)
+        values = arrayOfNulls(newSize)
+        mask = newSize - 1
+        maxFill = (newSize * LOAD_FACTOR).toInt()
+        for (i in oldKeys.indices) {
+            val value = oldValues[i] ?: continue
+            var j = mix(oldKeys[i]) and mask
+            while (values[j] != null) j = (j + 1) and mask
+            keys[j] = oldKeys[i]
+            values[j] = value
+        }
+    }
+
+    fun clear() {
+        values.fill(null)
+        size = 0
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    inline fun forEach(action: (V) -> Unit) {
+        for (value in values) {
+            if (value != null) action(value as V)
+        }
+    }
+}
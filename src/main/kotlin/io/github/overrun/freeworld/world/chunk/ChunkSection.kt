@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.world.chunk
+
+import io.github.overrun.freeworld.block.Block
+import io.github.overrun.freeworld.block.BlockRegistry
+import io.github.overrun.freeworld.block.Blocks.air
+
+/**
+ * A cube of 16*16*16 blocks.
+ *
+ * The coordinates passed in are local to the section, in range [0..15].
+ * The block ids are kept in a [PalettedContainer], next to the
+ * [visible faces][getVisibleFaces] of each block maintained by the world.
+ *
+ * @author squid233
+ * @since 2021/05/04
+ */
+class ChunkSection private constructor(
+    private val blocks: PalettedContainer,
+    nonAirCount: Int,
+    private val visibleFaces: ByteArray
+) {
+    companion object {
+        const val SIZE = 16
+        const val SHIFT = 4
+        const val MASK = SIZE - 1
+        const val VOLUME = SIZE * SIZE * SIZE
+
+        @JvmStatic
+        fun getIndex(x: Int, y: Int, z: Int) =
+            (y shl (SHIFT + SHIFT)) or (z shl SHIFT) or x
+    }
+
+    var nonAirCount = nonAirCount
+        private set
+
+    /** Increased each time the section or its border changed. */
+    var revision = 0
+        private set
+
+    constructor() : this(PalettedContainer(VOLUME, air.id), 0, ByteArray(VOLUME))
+
+    fun isEmpty() = nonAirCount == 0
+
+    fun getBlockId(x: Int, y: Int, z: Int) =
+        blocks[getIndex(x, y, z)]
+
+    fun getBlock(x: Int, y: Int, z: Int) =
+        BlockRegistry[getBlockId(x, y, z)]
+
+    /**
+     * Set the block at the position.
+     *
+     * @return The old block.
+     */
+    fun setBlock(x: Int, y: Int, z: Int, block: Block): Block {
+        val airId = air.id
+        val old = blocks.set(getIndex(x, y, z), block.id)
+        if (old != airId) --nonAirCount
+        if (block.id != airId) ++nonAirCount
+        if (old != block.id) ++revision
+        return BlockRegistry[old]
+    }
+
+    /**
+     * Get the [sides][io.github.overrun.freeworld.block.Blocks.SIDES] of the
+     * block not covered by its neighbors.
+     */
+    fun getVisibleFaces(index: Int) =
+        visibleFaces[index].toInt()
+
+    fun getVisibleFaces(x: Int, y: Int, z: Int) =
+        getVisibleFaces(getIndex(x, y, z))
+
+    /**
+     * Set the visible faces of the block.
+     *
+     * This doesn't change the [revision]; the world marks the section dirty itself.
+     */
+    fun setVisibleFaces(x: Int, y: Int, z: Int, faces: Int) {
+        visibleFaces[getIndex(x, y, z)] = faces.toByte()
+    }
+
+    fun markDirty() {
+        ++revision
+    }
+
+    fun copy() = ChunkSection(blocks.copy(), nonAirCount, visibleFaces.copyOf())
+}
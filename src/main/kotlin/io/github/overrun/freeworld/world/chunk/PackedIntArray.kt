@@ -0,0 +1,62 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.world.chunk
+
+/**
+ * A fixed size array of unsigned integers packed into [longs][LongArray].
+ *
+ * Each value takes [bits] bits, and values never span two longs.
+ *
+ * @author squid233
+ * @since 2021/05/05
+ */
+class PackedIntArray @JvmOverloads constructor(
+    val bits: Int,
+    val size: Int,
+    data: LongArray? = null
+) {
+    private val valuesPerLong = 64 / bits
+    private val mask = (1L shl bits) - 1L
+    val data = data ?: LongArray((size + valuesPerLong - 1) / valuesPerLong)
+
+    init {
+        require(bits in 1..32) { "Bits out of range: $bits" }
+    }
+
+    operator fun get(index: Int): Int {
+        val cell = index / valuesPerLong
+        val shift = (index - cell * valuesPerLong) * bits
+        return ((data[cell] ushr shift) and mask).toInt()
+    }
+
+    operator fun set(index: Int, value: Int) {
+        val cell = index / valuesPerLong
+        val shift = (index - cell * valuesPerLong) * bits
+        data[cell] = (data[cell] and (mask shl shift).inv()) or
+                ((value.toLong() and mask) shl shift)
+    }
+
+    fun copy() = PackedIntArray(bits, size, data.copyOf())
+}
@@ -0,0 +1,88 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.world.chunk
+
+/**
+ * Stores [size] block ids as indices to a small palette of ids.
+ *
+ * While the container holds only one kind of block no index array is
+ * allocated. The indices are [packed][PackedIntArray] with the fewest bits
+ * able to address the palette, and are repacked when the palette grows.
+ *
+ * @author squid233
+ * @since 2021/05/05
+ */
+class PalettedContainer private constructor(
+    val size: Int,
+    private var palette: IntArray,
+    private var paletteSize: Int,
+    private var storage: PackedIntArray?
+) {
+    constructor(size: Int, initial: Int) :
+            this(size, intArrayOf(initial, 0), 1, null)
+
+    val bits get() = storage?.bits ?: 0
+
+    operator fun get(index: Int): Int {
+        val s = storage ?: return palette[0]
+        return palette[s[index]]
+    }
+
+    /**
+     * Set the block id at the index.
+     *
+     * @return The old block id.
+     */
+    fun set(index: Int, id: Int): Int {
+        val paletteIndex = indexFor(id)
+        // Still single valued, so nothing changed
+        val s = storage ?: return palette[0]
+        val old = palette[s[index]]
+        s[index] = paletteIndex
+        return old
+    }
+
+    private fun indexFor(id: Int): Int {
+        for (i in 0 until paletteSize) {
+            if (palette[i] == id) return i
+        }
+        if (paletteSize == 1 shl bits) resize(bits + 1)
+        if (paletteSize == palette.size)
+            palette = palette.copyOf(palette.size * 2)
+        palette[paletteSize] = id
+        return paletteSize++
+    }
+
+    private fun resize(newBits: Int) {
+        val old = storage
+        val s = PackedIntArray(newBits, size)
+        if (old != null)
+            for (i in 0 until size) s[i] = old[i]
+        storage = s
+    }
+
+    fun copy() =
+        PalettedContainer(size, palette.copyOf(), paletteSize, storage?.copy())
+}
@@ -25,39 +25,31 @@
 package io.github.overrun.freeworld.block
 
 import io.github.overrun.freeworld.block.Blocks.*
-import io.github.overrun.freeworld.client.Mesh
-import io.github.overrun.freeworld.client.Texture
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNotEquals
+import org.junit.jupiter.api.Test
 
 /**
  * @author squid233
- * @since 2021/03/30
+ * @since 2021/05/11
  */
-class BlockMeshUnion(private val blockName: String) {
-    val map = HashMap<Int, Mesh>()
-
-    init {
-        val texture = Texture("assets.freeworld/textures/block/$blockName.png")
-        setMap(FACE_FRONT, texture, VERTICES_FRONT)
-        setMap(FACE_RIGHT, texture, VERTICES_RIGHT)
-        setMap(FACE_TOP, texture, VERTICES_TOP)
-        setMap(FACE_LEFT, texture, VERTICES_LEFT)
-        setMap(FACE_BACK, texture, VERTICES_BACK)
-        setMap(FACE_BOTTOM, texture, VERTICES_BOTTOM)
-        setMap(FACE_OVERLAY_FRONT, texture, VERTICES_OVERLAY_FRONT)
-        setMap(FACE_OVERLAY_RIGHT, texture, VERTICES_OVERLAY_RIGHT)
-        setMap(FACE_OVERLAY_LEFT, texture, VERTICES_OVERLAY_LEFT)
-        setMap(FACE_OVERLAY_BACK, texture, VERTICES_OVERLAY_BACK)
+class BlocksTest {
+    @Test
+    fun oppositeOfOpposite() {
+        for (face in SIDES) assertEquals(face, getOpposite(getOpposite(face)))
     }
 
-    fun render(face: Int) =
-        map[face]?.render()
-
-    private fun setMap(face: Int, texture: Texture, array: FloatArray) {
-        map[face] = singleFaceMesh(
-            face,
-            blockName,
-            texture,
-            *array
-        )
+    @Test
+    fun oppositeIsGeometric() {
+        for (face in SIDES) {
+            val opposite = getOpposite(face)
+            assertNotEquals(face, opposite)
+            assertEquals(0, getOffsetX(face) + getOffsetX(opposite), "x of $face")
+            assertEquals(0, getOffsetY(face) + getOffsetY(opposite), "y of $face")
+            assertEquals(0, getOffsetZ(face) + getOffsetZ(opposite), "z of $face")
+        }
+        assertEquals(FACE_BACK, getOpposite(FACE_FRONT))
+        assertEquals(FACE_LEFT, getOpposite(FACE_RIGHT))
+        assertEquals(FACE_BOTTOM, getOpposite(FACE_TOP))
     }
-}
\ No newline at end of file
+}
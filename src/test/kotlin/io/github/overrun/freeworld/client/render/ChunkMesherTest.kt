@@ -0,0 +1,99 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render
+
+import io.github.overrun.freeworld.block.Blocks
+import io.github.overrun.freeworld.world.World
+import io.github.overrun.freeworld.world.chunk.ChunkSection
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+
+/**
+ * The quads baked by [ChunkMesher] for the known layouts.
+ *
+ * Only the chunk at the origin is loaded, so the faces toward the
+ * other chunks are visible. The blocks are placed in the section
+ * at y = 32, away from the ground.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+class ChunkMesherTest {
+    companion object {
+        /** The 6 sides plus the 4 overlays of the horizontal sides. */
+        const val QUADS_PER_BLOCK = 10
+
+        @BeforeAll
+        @JvmStatic
+        fun stitch() {
+            BlockSprites.stitch(false)
+        }
+    }
+
+    private val world = World(64, 0).also { it.updateChunks(0f, 0f) }
+    private val mesher = ChunkMesher()
+
+    private fun build(y: Int) =
+        mesher.build(world.getChunk(0, 0)!!.getSection(y)!!)
+
+    @Test
+    fun emptySection() {
+        assertEquals(0, mesher.build(ChunkSection()).quadCount)
+    }
+
+    @Test
+    fun singleBlock() {
+        world.setBlock(5, 40, 5, Blocks.dirt)
+        val builder = build(40)
+        assertEquals(QUADS_PER_BLOCK, builder.quadCount)
+        assertEquals(QUADS_PER_BLOCK * 4, builder.vertexCount)
+        assertEquals(QUADS_PER_BLOCK * 6, builder.indexCount)
+        assertEquals(QUADS_PER_BLOCK * 4 * MeshBuilder.VERTEX_SIZE, builder.buffer.remaining())
+    }
+
+    @Test
+    fun adjacentBlocks() {
+        world.setBlock(5, 40, 5, Blocks.dirt)
+        world.setBlock(6, 40, 5, Blocks.grassBlock)
+        // The right of the first and the left of the second are hidden, with their overlays
+        assertEquals(QUADS_PER_BLOCK * 2 - 4, build(40).quadCount)
+    }
+
+    @Test
+    fun cube() {
+        for (x in 4..6) for (y in 36..38) for (z in 4..6) world.setBlock(x, y, z, Blocks.dirt)
+        // 9 faces on each side, the one in the middle hides all of its faces
+        assertEquals(QUADS_PER_BLOCK * 9, build(36).quadCount)
+    }
+
+    @Test
+    fun ground() {
+        // 2 layers of dirt and 1 layer of grass block; the bottom of the world is visible,
+        // and so are the 16 * 3 faces on each side toward the unloaded chunks
+        val sides = 4 * 16 * 3
+        assertEquals(256 + 256 + sides * 2, build(0).quadCount)
+    }
+}
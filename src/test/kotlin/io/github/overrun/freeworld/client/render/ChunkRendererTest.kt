@@ -0,0 +1,153 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render
+
+import io.github.overrun.freeworld.block.Blocks
+import io.github.overrun.freeworld.client.GlProgram
+import io.github.overrun.freeworld.client.GlStateManager
+import io.github.overrun.freeworld.client.Texture
+import io.github.overrun.freeworld.client.gl.LwjglBackend
+import io.github.overrun.freeworld.client.gl.NullBackend
+import io.github.overrun.freeworld.client.gl.RecordingBackend
+import io.github.overrun.freeworld.entity.player.Player
+import io.github.overrun.freeworld.world.World
+import org.joml.Matrix4f
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+
+/**
+ * The draws and uploads of [ChunkRenderer], rendering through a [RecordingBackend]
+ * without a window.
+ *
+ * The camera is above the world, which is inside the projection, so all the
+ * sections are drawn one by one.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+class ChunkRendererTest {
+    companion object {
+        /** The ground of one chunk, see [ChunkMesherTest.ground]. */
+        const val GROUND_QUADS = 256 + 256 + 4 * 16 * 3 * 2
+        const val QUAD_BYTES = 4L * MeshBuilder.VERTEX_SIZE
+        /** The indices of the first 1024 quads. */
+        const val INDEX_BYTES = 1024 * 6 * 4L
+
+        private lateinit var atlas: Texture
+
+        @BeforeAll
+        @JvmStatic
+        fun stitch() {
+            atlas = BlockSprites.stitch(false)
+        }
+    }
+
+    private val backend = RecordingBackend()
+    private val counter = backend.delegate as NullBackend
+    private val projection = Matrix4f().ortho(-48f, 48f, -48f, 48f, -48f, 48f)
+    private val view = Matrix4f()
+    private lateinit var program: GlProgram
+    private lateinit var renderer: ChunkRenderer
+
+    @BeforeEach
+    fun setUp() {
+        GlStateManager.setBackend(backend)
+        Player.teleport(8f, 40f, 8f)
+        Player.tick(0.05f, 1L)
+        Player.interpolate(1f, 1L)
+        program = GlProgram.of("shader/core/chunk")
+        renderer = ChunkRenderer(atlas)
+    }
+
+    @AfterEach
+    fun tearDown() {
+        renderer.close()
+        program.close()
+        GlStateManager.setBackend(LwjglBackend)
+    }
+
+    private fun render(world: World) =
+        renderer.render(world, program, projection, view)
+
+    /** Render until all the sections are built and uploaded. */
+    private fun renderBuilt(world: World) {
+        val deadline = System.nanoTime() + 10_000_000_000L
+        render(world)
+        while (renderer.isBuilding()) {
+            check(System.nanoTime() < deadline) { "The sections were not built" }
+            Thread.sleep(1L)
+            render(world)
+        }
+    }
+
+    private fun assertFrame(world: World, drawCalls: Int) {
+        counter.reset()
+        backend.clear()
+        RenderStats.endFrame()
+        render(world)
+        RenderStats.endFrame()
+        assertEquals(drawCalls.toLong(), counter.drawCalls)
+        assertEquals(drawCalls, backend.commands("glDrawElements").size)
+        assertEquals(0L, counter.uploadedBytes)
+        assertEquals(0, RenderStats.lastBufferUploads)
+    }
+
+    @Test
+    fun singleChunk() {
+        val world = World(16, 0).also { it.updateChunks(Player.x, Player.z) }
+        renderBuilt(world)
+        assertEquals(GROUND_QUADS, renderer.quadCount)
+        assertEquals(GROUND_QUADS * QUAD_BYTES + INDEX_BYTES, counter.uploadedBytes)
+        assertFrame(world, 1)
+    }
+
+    @Test
+    fun grid() {
+        val world = World(16, 1).also { it.updateChunks(Player.x, Player.z) }
+        renderBuilt(world)
+        // The faces between the chunks are hidden
+        val quads = 48 * 48 * 2 + 4 * 48 * 3 * 2
+        assertEquals(quads, renderer.quadCount)
+        assertEquals(quads * QUAD_BYTES + INDEX_BYTES, counter.uploadedBytes)
+        assertFrame(world, 9)
+    }
+
+    @Test
+    fun rebuild() {
+        val world = World(16, 0).also { it.updateChunks(Player.x, Player.z) }
+        renderBuilt(world)
+        counter.reset()
+        // Only the changed section is uploaded again
+        world.setBlock(8, 10, 8, Blocks.dirt)
+        renderBuilt(world)
+        val quads = GROUND_QUADS + ChunkMesherTest.QUADS_PER_BLOCK
+        assertEquals(quads, renderer.quadCount)
+        assertEquals(quads * QUAD_BYTES, counter.uploadedBytes)
+        assertFrame(world, 1)
+    }
+}
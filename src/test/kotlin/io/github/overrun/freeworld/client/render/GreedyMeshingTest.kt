@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render
+
+import io.github.overrun.freeworld.block.Blocks
+import io.github.overrun.freeworld.world.World
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+import java.util.*
+
+/**
+ * The greedy meshing covers the same faces as the simple one, with the
+ * same sprites and colors, and the texture repeats once per block.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+class GreedyMeshingTest {
+    companion object {
+        @BeforeAll
+        @JvmStatic
+        fun stitch() {
+            BlockSprites.stitch(false)
+        }
+    }
+
+    /**
+     * Split the quads of the mesh into the faces of single blocks, each of them
+     * as the normal axis, the side it faces, the block position, the sprite and the color.
+     */
+    private fun unitFaces(builder: MeshBuilder): Map<List<Int>, Int> {
+        val buffer = builder.buffer
+        val result = HashMap<List<Int>, Int>()
+        for (quad in 0 until builder.quadCount) {
+            val pos = Array(4) { IntArray(3) }
+            val us = IntArray(4)
+            val vs = IntArray(4)
+            var sprite = 0
+            var color = 0
+            for (i in 0 until 4) {
+                val base = (quad * 4 + i) * MeshBuilder.VERTEX_SIZE
+                for (axis in 0 until 3) {
+                    val value = buffer.getShort(base + axis * 2).toInt()
+                    assertEquals(0, value % MeshBuilder.POSITION_SCALE, "Not on the grid")
+                    pos[i][axis] = value / MeshBuilder.POSITION_SCALE
+                }
+                sprite = buffer.getShort(base + 6).toInt()
+                us[i] = buffer.get(base + 8).toInt()
+                vs[i] = buffer.get(base + 9).toInt()
+                color = buffer.getInt(base + 12)
+            }
+            val normal = (0 until 3).single { axis -> pos.all { it[axis] == pos[0][axis] } }
+            val a = (normal + 1) % 3
+            val b = (normal + 2) % 3
+            // The winding gives the side the quad faces
+            val e1 = IntArray(3) { pos[1][it] - pos[0][it] }
+            val e2 = IntArray(3) { pos[3][it] - pos[0][it] }
+            val side = Integer.signum(e1[a] * e2[b] - e1[b] * e2[a])
+            val minA = pos.minOf { it[a] }
+            val maxA = pos.maxOf { it[a] }
+            val minB = pos.minOf { it[b] }
+            val maxB = pos.maxOf { it[b] }
+            // The texture repeats once per block
+            val tiles = (us.maxOrNull()!! - us.minOrNull()!!) * (vs.maxOrNull()!! - vs.minOrNull()!!)
+            assertEquals((maxA - minA) * (maxB - minB), tiles, "Texture not repeated per block")
+            for (i in minA until maxA) {
+                for (j in minB until maxB) {
+                    val key = listOf(normal, side, pos[0][normal], i, j, sprite, color)
+                    result[key] = (result[key] ?: 0) + 1
+                }
+            }
+        }
+        return result
+    }
+
+    private fun check(world: World, sectionY: Int) {
+        val section = world.getChunk(0, 0)!!.sections[sectionY]!!
+        val mesher = ChunkMesher()
+        val simple = mesher.build(section)
+        val simpleQuads = simple.quadCount
+        val simpleFaces = unitFaces(simple)
+        assertEquals(simpleQuads, simpleFaces.values.sum())
+        mesher.greedy = true
+        val greedy = mesher.build(section)
+        assertTrue(greedy.quadCount <= simpleQuads, "${greedy.quadCount} > $simpleQuads")
+        assertEquals(simpleFaces, unitFaces(greedy))
+    }
+
+    @Test
+    fun ground() {
+        val world = World(16, 0)
+        world.updateChunks(0f, 0f)
+        check(world, 0)
+    }
+
+    @Test
+    fun randomSections() {
+        val blocks = arrayOf(Blocks.dirt, Blocks.grassBlock)
+        for (density in floatArrayOf(0.05f, 0.3f, 0.6f, 0.95f)) {
+            for (seed in 0L until 4L) {
+                val random = Random(seed)
+                val world = World(32, 0)
+                world.updateChunks(0f, 0f)
+                for (x in 0 until 16) {
+                    for (z in 0 until 16) {
+                        for (y in 3 until 32) {
+                            if (random.nextFloat() < density)
+                                world.setBlock(x, y, z, blocks[random.nextInt(blocks.size)])
+                        }
+                    }
+                }
+                check(world, 0)
+                check(world, 1)
+            }
+        }
+    }
+}
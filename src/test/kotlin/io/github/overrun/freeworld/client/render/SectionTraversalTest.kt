@@ -0,0 +1,123 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render
+
+import io.github.overrun.freeworld.block.Blocks
+import io.github.overrun.freeworld.world.chunk.ChunkSection
+import io.github.overrun.freeworld.world.chunk.ChunkSection.Companion.VOLUME
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+
+/**
+ * The occlusion culling on a grid of columns, all of them visible.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+class SectionTraversalTest {
+    private class Column(val x: Int, val z: Int, height: Int) {
+        val connectivity = LongArray(height) { SectionConnectivity.ALL }
+        val visited = BooleanArray(height)
+    }
+
+    private class Grid(val radius: Int, height: Int) : SectionTraversal<Column>() {
+        val columns = Array((radius * 2 + 1) * (radius * 2 + 1)) {
+            Column(it % (radius * 2 + 1) - radius, it / (radius * 2 + 1) - radius, height)
+        }
+        var visitCount = 0
+
+        operator fun get(x: Int, z: Int) =
+            if (x < -radius || x > radius || z < -radius || z > radius) null
+            else columns[(x + radius) + (z + radius) * (radius * 2 + 1)]
+
+        override fun getNeighbor(column: Column, dx: Int, dz: Int) = get(column.x + dx, column.z + dz)
+
+        override fun getHeight(column: Column) = column.connectivity.size
+
+        override fun getConnectivity(column: Column, sectionY: Int) = column.connectivity[sectionY]
+
+        override fun markVisited(column: Column, sectionY: Int): Boolean {
+            if (column.visited[sectionY]) return false
+            column.visited[sectionY] = true
+            return true
+        }
+
+        override fun isVisible(column: Column, sectionY: Int) = true
+
+        override fun visit(column: Column, sectionY: Int) {
+            ++visitCount
+        }
+    }
+
+    @Test
+    fun openAir() {
+        val grid = Grid(3, 4)
+        grid.traverse(grid[0, 0]!!, 1)
+        for (column in grid.columns) {
+            for (y in column.visited.indices) {
+                assertTrue(column.visited[y], "(${column.x}, $y, ${column.z}) not reached")
+            }
+        }
+        assertEquals(7 * 7 * 4, grid.visitCount)
+    }
+
+    @Test
+    fun wall() {
+        val grid = Grid(2, 4)
+        for (z in -2..2) grid[1, z]!!.connectivity.fill(0L)
+        grid.traverse(grid[0, 0]!!, 1)
+        // The wall is drawn, but nothing behind it
+        assertEquals(4 * 5 * 4, grid.visitCount)
+        for (z in -2..2) assertTrue(grid[2, z]!!.visited.none { it })
+    }
+
+    @Test
+    fun enclosedRoom() {
+        val grid = Grid(2, 3)
+        for (column in grid.columns) column.connectivity.fill(0L)
+        grid.traverse(grid[0, 0]!!, 1)
+        // The camera sees the walls around it
+        assertEquals(1 + 6, grid.visitCount)
+    }
+
+    @Test
+    fun tunnel() {
+        // Solid but a tunnel along x through the middle
+        val ids = IntArray(VOLUME) { Blocks.dirt.id }
+        for (x in 0 until 16) ids[ChunkSection.getIndex(x, 8, 8)] = Blocks.air.id
+        val tunnel = SectionConnectivity().compute(ids)
+        assertTrue(SectionConnectivity.isConnected(tunnel, Blocks.FACE_LEFT, Blocks.FACE_RIGHT))
+        assertTrue(!SectionConnectivity.isConnected(tunnel, Blocks.FACE_LEFT, Blocks.FACE_TOP))
+
+        val grid = Grid(3, 3)
+        for (column in grid.columns) column.connectivity.fill(0L)
+        for (x in -3..3) grid[x, 0]!!.connectivity[1] = tunnel
+        grid.traverse(grid[0, 0]!!, 1)
+        // The camera section and its walls, then the rest of the tunnel
+        assertEquals(1 + 6 + 4, grid.visitCount)
+        for (x in -3..3) assertTrue(grid[x, 0]!!.visited[1])
+    }
+}
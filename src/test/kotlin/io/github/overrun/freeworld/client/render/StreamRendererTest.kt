@@ -0,0 +1,79 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.client.render
+
+import io.github.overrun.freeworld.client.GlProgram
+import io.github.overrun.freeworld.client.GlStateManager
+import io.github.overrun.freeworld.client.gl.LwjglBackend
+import io.github.overrun.freeworld.client.gl.NullBackend
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.lwjgl.opengl.GL11.GL_TRIANGLES
+
+/**
+ * The draws and uploads of [StreamRenderer] through a [NullBackend],
+ * which writes the vertices to client memory.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+class StreamRendererTest {
+    private val backend = NullBackend()
+
+    @BeforeEach
+    fun setUp() =
+        GlStateManager.setBackend(backend)
+
+    @AfterEach
+    fun tearDown() =
+        GlStateManager.setBackend(LwjglBackend)
+
+    @Test
+    fun quads() {
+        GlProgram.of("shader/core/block").use { program ->
+            StreamRenderer().use { renderer ->
+                program.bind()
+                RenderStats.endFrame()
+                for (frame in 0 until 3) {
+                    backend.reset()
+                    renderer.begin(GL_TRIANGLES, 12)
+                    renderer.quad(0f, 0f, 1f, 1f, 0f, -1)
+                        .quad(1f, 0f, 2f, 1f, 0f, -1)
+                    renderer.end(program)
+                    renderer.endFrame()
+                    assertEquals(1L, backend.drawCalls)
+                    assertEquals(12L * StreamRenderer.VERTEX_SIZE, backend.uploadedBytes)
+                    // Counted as streamed, not as mesh uploads
+                    RenderStats.endFrame()
+                    assertEquals(0, RenderStats.lastBufferUploads)
+                    assertEquals(1, RenderStats.lastStreamUploads)
+                    assertEquals(12L * StreamRenderer.VERTEX_SIZE, RenderStats.lastStreamedBytes)
+                }
+            }
+        }
+    }
+}
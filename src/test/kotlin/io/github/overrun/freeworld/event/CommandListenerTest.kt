@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.event
+
+import io.github.overrun.freeworld.block.Blocks
+import io.github.overrun.freeworld.client.FreeWorldClient
+import io.github.overrun.freeworld.world.World
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+
+/**
+ * The commands changing the world run on the main thread.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+class CommandListenerTest {
+    private val world = World(16, 0).also { it.updateChunks(0f, 0f) }
+
+    @BeforeEach
+    fun setUp() {
+        FreeWorldClient.world = world
+    }
+
+    @AfterEach
+    fun tearDown() {
+        FreeWorldClient.runTasks()
+        FreeWorldClient.world = null
+    }
+
+    @Test
+    fun setBlock() {
+        assertTrue(CommandListener.SET_BLOCK.onCommand("setblock", "3", "8", "4", "dirt"))
+        assertEquals(Blocks.air, world.getBlock(3, 8, 4))
+        FreeWorldClient.runTasks()
+        assertEquals(Blocks.dirt, world.getBlock(3, 8, 4))
+        // Air without the block
+        assertTrue(CommandListener.SET_BLOCK.onCommand("setblock", "3", "8", "4"))
+        FreeWorldClient.runTasks()
+        assertEquals(Blocks.air, world.getBlock(3, 8, 4))
+    }
+}
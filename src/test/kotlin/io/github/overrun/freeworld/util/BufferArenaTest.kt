@@ -0,0 +1,187 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.util
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNotNull
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.util.*
+
+/**
+ * @author squid233
+ * @since 2021/05/11
+ */
+class BufferArenaTest {
+    /** Check the live ranges don't overlap and the bytes add up. */
+    private fun assertConsistent(arena: BufferArena, live: List<BufferArena.Allocation>) {
+        val sorted = live.sortedBy { it.offset }
+        var end = 0L
+        for (allocation in sorted) {
+            assertTrue(allocation.isLive)
+            assertTrue(allocation.offset >= end, "Overlapping at ${allocation.offset}")
+            assertEquals(0L, allocation.offset % arena.alignment)
+            end = allocation.offset + allocation.size
+        }
+        assertTrue(end <= arena.capacity)
+        assertEquals(live.size, arena.allocationCount)
+        assertEquals(live.sumOf { it.size }, arena.usedBytes)
+        assertEquals(arena.capacity - arena.usedBytes, arena.freeBytes)
+        assertTrue(arena.largestFreeBlock <= arena.freeBytes)
+    }
+
+    @Test
+    fun randomAllocations() {
+        val arena = BufferArena(1 shl 20, 16)
+        val live = ArrayList<BufferArena.Allocation>()
+        val random = Random(0)
+        repeat(20000) {
+            if (live.isNotEmpty() && random.nextInt(3) == 0) {
+                arena.free(live.removeAt(random.nextInt(live.size)))
+            } else {
+                arena.allocate(1L + random.nextInt(4096))?.let { live += it }
+            }
+            assertConsistent(arena, live)
+        }
+        for (allocation in live) arena.free(allocation)
+        assertConsistent(arena, emptyList())
+        // Everything merged back to one range
+        assertEquals(1, arena.freeBlockCount)
+        assertEquals(arena.capacity, arena.largestFreeBlock)
+        assertEquals(0f, arena.fragmentation)
+    }
+
+    @Test
+    fun alignment() {
+        val arena = BufferArena(256, 16)
+        val a = arena.allocate(1)!!
+        val b = arena.allocate(17)!!
+        assertEquals(16L, a.size)
+        assertEquals(32L, b.size)
+        assertEquals(16L, b.offset)
+        assertEquals(48L, arena.usedBytes)
+    }
+
+    @Test
+    fun fullArena() {
+        val arena = BufferArena(64)
+        assertNotNull(arena.allocate(64))
+        assertNull(arena.allocate(1))
+        assertEquals(0L, arena.freeBytes)
+        assertEquals(0f, arena.fragmentation)
+    }
+
+    @Test
+    fun fragmentation() {
+        val arena = BufferArena(64)
+        val blocks = List(4) { arena.allocate(16)!! }
+        arena.free(blocks[0])
+        arena.free(blocks[2])
+        assertEquals(2, arena.freeBlockCount)
+        assertEquals(32L, arena.freeBytes)
+        assertEquals(0.5f, arena.fragmentation)
+        // Not in one piece, though there are enough free bytes
+        assertNull(arena.allocate(32))
+        arena.free(blocks[1])
+        assertEquals(1, arena.freeBlockCount)
+        assertEquals(48L, arena.largestFreeBlock)
+        assertEquals(0f, arena.fragmentation)
+    }
+
+    @Test
+    fun doubleFree() {
+        val arena = BufferArena(64)
+        val allocation = arena.allocate(16)!!
+        arena.free(allocation)
+        assertFalse(allocation.isLive)
+        assertThrows(IllegalArgumentException::class.java) { arena.free(allocation) }
+    }
+
+    @Test
+    fun defragment() {
+        val arena = BufferArena(4096, 4)
+        val data = ByteArray(4096)
+        val live = ArrayList<BufferArena.Allocation>()
+        val random = Random(1)
+        // Fill each range with its own byte
+        val tags = IdentityHashMap<BufferArena.Allocation, Byte>()
+        repeat(200) {
+            if (live.isNotEmpty() && random.nextBoolean()) {
+                arena.free(live.removeAt(random.nextInt(live.size)))
+            } else {
+                val allocation = arena.allocate(1L + random.nextInt(64)) ?: return@repeat
+                val tag = (tags.size % 255 + 1).toByte()
+                tags[allocation] = tag
+                Arrays.fill(data, allocation.offset.toInt(), (allocation.offset + allocation.size).toInt(), tag)
+                live += allocation
+            }
+        }
+        val order = live.sortedBy { it.offset }
+        var lastNewOffset = -1L
+        arena.defragment { allocation, newOffset ->
+            assertTrue(newOffset <= allocation.offset, "Moved toward the end")
+            assertTrue(newOffset > lastNewOffset, "Not in the order of the offsets")
+            lastNewOffset = newOffset
+            System.arraycopy(data, allocation.offset.toInt(), data, newOffset.toInt(), allocation.size.toInt())
+        }
+        assertConsistent(arena, live)
+        // Packed in the same order, and the data moved with the offsets
+        var top = 0L
+        for (allocation in order) {
+            assertEquals(top, allocation.offset)
+            for (i in 0 until allocation.size.toInt()) {
+                assertEquals(tags[allocation], data[allocation.offset.toInt() + i])
+            }
+            top += allocation.size
+        }
+        assertEquals(if (top < arena.capacity) 1 else 0, arena.freeBlockCount)
+        assertEquals(0f, arena.fragmentation)
+        // The offsets stay after the next defragment
+        arena.defragment { allocation, newOffset -> assertEquals(allocation.offset, newOffset) }
+    }
+
+    @Test
+    fun grow() {
+        val arena = BufferArena(64)
+        val first = arena.allocate(48)!!
+        assertNull(arena.allocate(32))
+        arena.grow(128)
+        assertEquals(0L, first.offset)
+        // The new space is merged with the free range at the end
+        assertEquals(1, arena.freeBlockCount)
+        assertEquals(80L, arena.largestFreeBlock)
+        val second = arena.allocate(32)!!
+        assertEquals(48L, second.offset)
+        assertConsistent(arena, listOf(first, second))
+        // Growing a full arena adds a new free range
+        arena.allocate(48)!!
+        arena.grow(256)
+        assertEquals(1, arena.freeBlockCount)
+        assertEquals(128L, arena.largestFreeBlock)
+    }
+}
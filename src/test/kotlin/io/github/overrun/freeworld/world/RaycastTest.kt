@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.world
+
+import io.github.overrun.freeworld.block.Block
+import io.github.overrun.freeworld.block.Blocks.*
+import io.github.overrun.freeworld.util.HitResult
+import io.github.overrun.freeworld.util.shape.VoxelSet
+import io.github.overrun.freeworld.util.shape.VoxelShape
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import kotlin.math.sqrt
+
+/**
+ * The blocks and faces found by [Raycast], in a world with a few blocks
+ * placed in the air above the ground.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+class RaycastTest {
+    /** The lower half of a block. */
+    private val slab = object : Block("slab") {
+        override fun getOutlineShape() = VoxelShape(VoxelSet(0f, 0f, 0f, 1f, 0.5f, 1f))
+    }
+    private val world = World(16, 0).also {
+        it.updateChunks(0f, 0f)
+        it.setBlock(8, 8, 8, dirt)
+    }
+
+    private fun cast(
+        view: BlockView,
+        x: Float, y: Float, z: Float,
+        dirX: Float, dirY: Float, dirZ: Float,
+        maxDistance: Float = 10f
+    ): HitResult {
+        val result = HitResult()
+        val hit = Raycast.cast(view, x, y, z, dirX, dirY, dirZ, maxDistance, result)
+        assertEquals(hit, !result.isNull)
+        return result
+    }
+
+    private fun assertHit(result: HitResult, block: Block, x: Int, y: Int, z: Int, face: Int) {
+        assertFalse(result.isNull, "Missed")
+        assertSame(block, result.block)
+        assertEquals(x, result.x)
+        assertEquals(y, result.y)
+        assertEquals(z, result.z)
+        assertEquals(face, result.face)
+    }
+
+    @Test
+    fun axes() {
+        // The face hit is the one facing the origin
+        for (face in SIDES) {
+            val dx = getOffsetX(face).toFloat()
+            val dy = getOffsetY(face).toFloat()
+            val dz = getOffsetZ(face).toFloat()
+            val result = cast(world, 8.5f + dx * 4, 8.5f + dy * 4, 8.5f + dz * 4, -dx, -dy, -dz)
+            assertHit(result, dirt, 8, 8, 8, face)
+        }
+    }
+
+    @Test
+    fun maxDistance() {
+        // The block is entered at 4.5
+        assertTrue(cast(world, 3.5f, 8.5f, 8.5f, 1f, 0f, 0f, 4.4f).isNull)
+        assertHit(cast(world, 3.5f, 8.5f, 8.5f, 1f, 0f, 0f, 4.6f), dirt, 8, 8, 8, FACE_LEFT)
+        // Nothing above the ground
+        assertTrue(cast(world, 3.5f, 8.5f, 3.5f, 0f, 1f, 0f).isNull)
+    }
+
+    @Test
+    fun originInsideBlock() {
+        // The block containing the origin is not hit
+        assertTrue(cast(world, 8.5f, 8.5f, 8.5f, 1f, 0f, 0f).isNull)
+        world.setBlock(10, 8, 8, grassBlock)
+        assertHit(cast(world, 8.5f, 8.5f, 8.5f, 1f, 0f, 0f), grassBlock, 10, 8, 8, FACE_LEFT)
+    }
+
+    @Test
+    fun zeroComponent() {
+        // In the plane y = 8.5, entering the block through x = 8 at z = 8.25
+        val length = sqrt(5f)
+        val result = cast(world, 4.5f, 8.5f, 6.5f, 2f / length, 0f, 1f / length)
+        assertHit(result, dirt, 8, 8, 8, FACE_LEFT)
+        // Down onto the ground
+        assertHit(cast(world, 3.5f, 8.5f, 3.5f, 0f, -1f, 0f), grassBlock, 3, 2, 3, FACE_TOP)
+    }
+
+    @Test
+    fun partialShape() {
+        val view = object : BlockView {
+            override fun getBlock(x: Int, y: Int, z: Int) =
+                if (x == 8 && y == 8 && z == 8) slab else world.getBlock(x, y, z)
+        }
+        assertHit(cast(view, 3.5f, 8.25f, 8.5f, 1f, 0f, 0f), slab, 8, 8, 8, FACE_LEFT)
+        // The top of the slab is at 4, the top of its cell at 3.5
+        assertHit(cast(view, 8.5f, 12.5f, 8.5f, 0f, -1f, 0f), slab, 8, 8, 8, FACE_TOP)
+        assertTrue(cast(view, 8.5f, 12.5f, 8.5f, 0f, -1f, 0f, 3.75f).isNull)
+        // Passing over the slab in the same cell
+        assertTrue(cast(view, 3.5f, 8.75f, 8.5f, 1f, 0f, 0f).isNull)
+        world.setBlock(10, 8, 8, grassBlock)
+        assertHit(cast(view, 3.5f, 8.75f, 8.5f, 1f, 0f, 0f), grassBlock, 10, 8, 8, FACE_LEFT)
+    }
+}
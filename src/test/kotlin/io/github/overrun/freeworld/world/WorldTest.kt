@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OverRun Organization
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.github.overrun.freeworld.world
+
+import io.github.overrun.freeworld.block.Blocks.*
+import io.github.overrun.freeworld.world.chunk.ChunkSection.Companion.SHIFT
+import io.github.overrun.freeworld.world.chunk.ChunkSection.Companion.SIZE
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNotNull
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Test
+import java.util.*
+
+/**
+ * The [visible faces][World.getVisibleFaces] kept by the world,
+ * compared to the faces computed from the neighbors.
+ *
+ * @author squid233
+ * @since 2021/05/11
+ */
+class WorldTest {
+    private fun expectedFaces(world: World, x: Int, y: Int, z: Int): Int {
+        if (world.getBlock(x, y, z) == air) return 0
+        var result = 0
+        for (face in SIDES) {
+            val neighbor = world.getBlock(x + getOffsetX(face), y + getOffsetY(face), z + getOffsetZ(face))
+            if ((neighbor.fullFaces and getOpposite(face)) == 0) result = result or face
+        }
+        return result
+    }
+
+    private fun assertFaces(world: World) {
+        world.forEachChunk { chunk ->
+            val originX = chunk.x shl SHIFT
+            val originZ = chunk.z shl SHIFT
+            for (y in 0 until world.height) {
+                for (z in originZ until originZ + SIZE) {
+                    for (x in originX until originX + SIZE) {
+                        assertEquals(
+                            expectedFaces(world, x, y, z),
+                            world.getVisibleFaces(x, y, z),
+                            "($x, $y, $z)"
+                        )
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    fun randomEdits() {
+        val world = World(48, 1)
+        world.updateChunks(0f, 0f)
+        assertFaces(world)
+        val random = Random(0)
+        val blocks = arrayOf(air, dirt, grassBlock)
+        for (i in 1..5000) {
+            // Around the borders of the chunks and the sections
+            world.setBlock(
+                random.nextInt(SIZE * 3) - SIZE,
+                random.nextInt(world.height),
+                random.nextInt(SIZE * 3) - SIZE,
+                blocks[random.nextInt(blocks.size)],
+                true
+            )
+            if (i % 500 == 0) assertFaces(world)
+        }
+    }
+
+    @Test
+    fun unloadNeighbor() {
+        val world = World(16, 0)
+        world.updateChunks(0f, 0f)
+        world.updateChunks(SIZE.toFloat(), 0f)
+        // The ground at the border between the chunks is hidden
+        assertEquals(FACE_TOP, world.getVisibleFaces(SIZE, 2, 5))
+        world.updateChunks(SIZE * 2f, 0f)
+        assertNull(world.getChunk(0, 0))
+        assertNotNull(world.getChunk(1, 0))
+        assertFaces(world)
+        assertEquals(FACE_TOP or FACE_LEFT, world.getVisibleFaces(SIZE, 2, 5))
+    }
+
+    @Test
+    fun restoreModifiedChunk() {
+        val world = World(16, 0)
+        world.updateChunks(0f, 0f)
+        world.setBlock(5, 10, 5, dirt)
+        world.updateChunks(SIZE * 3f, 0f)
+        assertNull(world.getChunk(0, 0))
+        // The chunk left unmodified is not saved
+        world.updateChunks(SIZE * 6f, 0f)
+        assertEquals(1, world.savedChunkCount)
+        world.updateChunks(0f, 0f)
+        assertEquals(0, world.savedChunkCount)
+        assertEquals(dirt, world.getBlock(5, 10, 5))
+        assertFaces(world)
+    }
+}